@@ -29,7 +29,7 @@ public abstract class AbstractDeque<E> extends AbstractQueue<E> implements
 	@Override
 	public boolean offerFirst(E e) {
 		addFirst(e);
-		return false;
+		return true;
 	}
 
 	@Override
@@ -1,7 +1,11 @@
 package collection;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
  * A skeletal implementation of the combined deque and list interfaces.
@@ -17,6 +21,102 @@ import java.util.NoSuchElementException;
 public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 		List<E> {
 
+	/**
+	 * Spliterator over a range of indices, halved on each split. Only suits
+	 * subclasses whose get runs in constant time. Binds to size on first use
+	 * and fails fast if the list is structurally changed afterwards.
+	 * 
+	 * @author Jacob Malter
+	 */
+	protected class IndexSpliterator implements Spliterator<E> {
+
+		/** modCount this spliterator agrees with */
+		private int expectedModCount;
+		/** Index after last element covered, -1 until bound */
+		private int fence;
+		/** Index of next element */
+		private int index;
+
+		/**
+		 * Constructs an IndexSpliterator over the whole list.
+		 */
+		protected IndexSpliterator() {
+			this(0, -1, 0);
+		}
+
+		private IndexSpliterator(int index, int fence, int expectedModCount) {
+			this.expectedModCount = expectedModCount;
+			this.fence = fence;
+			this.index = index;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED
+					| Spliterator.SUBSIZED;
+		}
+
+		/**
+		 * Throws an exception if the list changed behind this spliterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		@Override
+		public long estimateSize() {
+			return getFence() - index;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			int hi = getFence();
+			while (index < hi)
+				action.accept(get(index++));
+			checkForComodification();
+		}
+
+		/**
+		 * Returns fence, binding to size on first use.
+		 * 
+		 * @return index after last element covered
+		 */
+		private int getFence() {
+			if (fence < 0) {
+				expectedModCount = modCount;
+				fence = size();
+			}
+			return fence;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			if (index >= getFence())
+				return false;
+			action.accept(get(index++));
+			checkForComodification();
+			return true;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			int lo = index, mid = (lo + getFence()) >>> 1;
+			if (lo >= mid)
+				return null;
+			index = mid;
+			return new IndexSpliterator(lo, mid, expectedModCount);
+		}
+
+	}
+
+	/** Number of structural modifications, checked by fail-fast iterators */
+	protected int modCount;
+
 	@Override
 	public boolean addAll(int index, Collection<? extends E> c) {
 		boolean changed = false;
@@ -42,6 +142,33 @@ public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 		return indexOf(obj) >= 0;
 	}
 
+	/**
+	 * This implementation walks a list iterator backwards from the end, so
+	 * reverse iteration allocates nothing beyond that iterator.
+	 */
+	@Override
+	public Iterator<E> descendingIterator() {
+		final ListIterator<E> it = listIterator(size());
+		return new Iterator<E>() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasPrevious();
+			}
+
+			@Override
+			public E next() {
+				return it.previous();
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+			}
+
+		};
+	}
+
 	@Override
 	public E getFirst() {
 		return get(0);
@@ -49,7 +176,7 @@ public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 
 	@Override
 	public E getLast() {
-		return get(size());
+		return get(size() - 1);
 	}
 
 	@Override
@@ -59,7 +186,7 @@ public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 
 	@Override
 	public E pollLast() {
-		return isEmpty() ? null : remove(size());
+		return isEmpty() ? null : remove(size() - 1);
 	}
 
 	@Override
@@ -72,8 +199,7 @@ public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 
 	@Override
 	public boolean remove(Object obj) {
-		remove(indexOf(obj));
-		return true;
+		return removeFirstOccurence(obj);
 	}
 
 	@Override
@@ -85,23 +211,37 @@ public abstract class AbstractDequeList<E> extends AbstractDeque<E> implements
 
 	@Override
 	public boolean removeFirstOccurence(Object o) {
-		remove(indexOf(o));
+		int index = indexOf(o);
+		if (index < 0)
+			return false;
+		remove(index);
 		return true;
 	}
 
 	@Override
 	public E removeLast() {
-		E result = get(size());
-		remove(size());
-		return result;
+		return remove(size() - 1);
 	}
 
 	@Override
 	public boolean removeLastOccurence(Object o) {
-		remove(lastIndexOf(o));
+		int index = lastIndexOf(o);
+		if (index < 0)
+			return false;
+		remove(index);
 		return true;
 	}
 
+	/**
+	 * Inherited from both list and queue. This implementation wraps iterator
+	 * and reports ORDERED; subclasses with constant time get should return an
+	 * IndexSpliterator instead.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+	}
+
 	@Override
 	public List<E> subList(int start, boolean startInclusive, int end,
 			boolean endInclusive) {
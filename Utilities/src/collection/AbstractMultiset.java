@@ -4,7 +4,10 @@ import java.util.Iterator;
 
 /**
  * A skeletal implementation of the multiset (and set) interface.
- * 
+ *
+ * This implementation of the counting methods repeats single element adds and
+ * removes. Subclasses which store counts should override them.
+ *
  * @author Jacob Malter
  *
  * @param <E>
@@ -13,6 +16,203 @@ import java.util.Iterator;
 public abstract class AbstractMultiset<E> extends AbstractCollection<E> implements
 		Multiset<E> {
 
+	/**
+	 * A skeletal implementation of the multiset entry interface.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	protected abstract static class AbstractEntry<E> implements
+			Multiset.Entry<E> {
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Multiset.Entry<?>))
+				return false;
+			Multiset.Entry<?> other = (Multiset.Entry<?>) obj;
+			E element = getElement();
+			return getCount() == other.getCount()
+					&& (element == null ? other.getElement() == null : element
+							.equals(other.getElement()));
+		}
+
+		@Override
+		public int hashCode() {
+			E element = getElement();
+			return (element == null ? 0 : element.hashCode()) ^ getCount();
+		}
+
+		@Override
+		public String toString() {
+			return getElement() + " x " + getCount();
+		}
+
+	}
+
+	/**
+	 * Entry whose element and count never change.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	protected static class ImmutableEntry<E> extends AbstractEntry<E> {
+
+		/** Number of occurrences */
+		private final int count;
+		/** Object stored */
+		private final E element;
+
+		/**
+		 * Constructs an entry given element and count.
+		 *
+		 * @param element
+		 *            object stored
+		 * @param count
+		 *            number of occurrences
+		 */
+		protected ImmutableEntry(E element, int count) {
+			this.element = element;
+			this.count = count;
+		}
+
+		@Override
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public E getElement() {
+			return element;
+		}
+
+	}
+
+	/**
+	 * Set view of distinct elements and their counts.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class EntrySet extends AbstractMultiset<Multiset.Entry<E>>
+			implements Set<Multiset.Entry<E>> {
+
+		/**
+		 * This implementation refuses every entry.
+		 */
+		@Override
+		public boolean add(Multiset.Entry<E> obj) {
+			throw new UnsupportedOperationException(
+					"Cannot add entries to entry view.");
+		}
+
+		@Override
+		public boolean contains(Object obj) {
+			if (!(obj instanceof Multiset.Entry<?>))
+				return false;
+			Multiset.Entry<?> entry = (Multiset.Entry<?>) obj;
+			return entry.getCount() > 0
+					&& count(entry.getElement()) == entry.getCount();
+		}
+
+		@Override
+		protected Iterator<Multiset.Entry<Multiset.Entry<E>>> entryIterator() {
+			Iterator<Multiset.Entry<E>> it = iterator();
+			return new Iterator<Multiset.Entry<Multiset.Entry<E>>>() {
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Multiset.Entry<Multiset.Entry<E>> next() {
+					return new ImmutableEntry<Multiset.Entry<E>>(it.next(), 1);
+				}
+
+			};
+		}
+
+		@Override
+		public Iterator<Multiset.Entry<E>> iterator() {
+			return AbstractMultiset.this.entryIterator();
+		}
+
+		@Override
+		public int size() {
+			return distinctSize();
+		}
+
+	}
+
+	@Override
+	public boolean add(E obj, int occurrences) {
+		checkOccurrences(occurrences);
+		boolean changed = false;
+		for (int i = 0; i < occurrences; i++)
+			changed = changed | add(obj);
+		return changed;
+	}
+
+	/**
+	 * Validates a number of occurrences.
+	 *
+	 * @param occurrences
+	 *            number of occurrences
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	protected static void checkOccurrences(int occurrences) {
+		Collections.checkOccurrences(occurrences);
+	}
+
+	@Override
+	public int count(Object obj) {
+		int count = 0;
+		Iterator<E> it = iterator();
+		while (it.hasNext()) {
+			E next = it.next();
+			if (next == null ? obj == null : next.equals(obj))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of distinct elements.
+	 *
+	 * This implementation counts entries returned by {@code entryIterator()}.
+	 *
+	 * @return number of distinct elements
+	 */
+	protected int distinctSize() {
+		int distinct = 0;
+		Iterator<Multiset.Entry<E>> it = entryIterator();
+		while (it.hasNext()) {
+			it.next();
+			distinct++;
+		}
+		return distinct;
+	}
+
+	/**
+	 * Creates an iterator over distinct elements paired with their counts.
+	 * Backs {@code entrySet()}.
+	 *
+	 * @return iterator over entries
+	 */
+	protected abstract Iterator<Multiset.Entry<E>> entryIterator();
+
+	@Override
+	public Set<Multiset.Entry<E>> entrySet() {
+		return new EntrySet();
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this)
@@ -45,6 +245,26 @@ public abstract class AbstractMultiset<E> extends AbstractCollection<E> implemen
 	@Override
 	public abstract Iterator<E> iterator();
 
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		boolean changed = false;
+		for (int i = 0; i < occurrences && remove(obj); i++)
+			changed = true;
+		return changed;
+	}
+
+	@Override
+	public int setCount(E obj, int count) {
+		checkOccurrences(count);
+		int previous = count(obj);
+		if (count > previous)
+			add(obj, count - previous);
+		else if (count < previous)
+			remove(obj, previous - count);
+		return previous;
+	}
+
 	@Override
 	public abstract int size();
 
@@ -0,0 +1,231 @@
+package collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A skeletal implementation of a bounded lock-free queue on a ring buffer for
+ * a single consumer thread. Head and tail are ever increasing sequence numbers
+ * mapped into the ring with a mask. They share one array but sit a cache line
+ * apart, so the producer and consumer do not falsely share them. Elements
+ * never allocate nodes.
+ *
+ * Only the consumer thread may call poll, peek, element, remove, drain, clear
+ * or iterate.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public abstract class AbstractRingQueue<E> extends AbstractQueue<E> {
+
+	/**
+	 * Iterator over elements between head and tail when created. Weakly
+	 * consistent: elements polled meanwhile may or may not be returned.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class RingIterator implements Iterator<E> {
+
+		private E next;
+		private long sequence;
+		private final long tail;
+
+		private RingIterator() {
+			sequence = sequences.get(HEAD);
+			tail = sequences.get(TAIL);
+			advance();
+		}
+
+		/**
+		 * Moves next to the next present element.
+		 */
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (next == null && sequence < tail) {
+				Object element = buffer.get((int) sequence++ & mask);
+				if (element != SKIPPED)
+					next = (E) element;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E result = next;
+			advance();
+			return result;
+		}
+
+	}
+
+	/** Sequence index of the next element polled, a line after TAIL */
+	protected static final int HEAD = 16;
+	/** Longs in a cache line */
+	protected static final int PAD = 8;
+	/** Marks a claimed slot whose producer failed to fill it */
+	protected static final Object SKIPPED = new Object();
+	/** Sequence index of the next element offered, a line after index 0 */
+	protected static final int TAIL = 8;
+
+	/** Ring of elements */
+	protected final AtomicReferenceArray<Object> buffer;
+	/**
+	 * Thread local views of the other side's counter: the producer's view of
+	 * head at HEAD and the consumer's view of tail at TAIL
+	 */
+	protected final long[] cached;
+	/** capacity - 1 */
+	protected final int mask;
+	/** Head and tail, padded from each other and neighboring objects */
+	protected final AtomicLongArray sequences;
+
+	/**
+	 * Constructs an empty ring queue.
+	 *
+	 * @param capacity
+	 *            most elements held, rounded up to a power of two
+	 * @throws IllegalArgumentException
+	 *             if capacity is less than one or greater than 2^30
+	 */
+	protected AbstractRingQueue(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity less than one.");
+		if (capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity greater than 2^30.");
+		int length = capacity < 2 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		buffer = new AtomicReferenceArray<Object>(length);
+		cached = new long[HEAD + PAD];
+		mask = length - 1;
+		sequences = new AtomicLongArray(HEAD + PAD);
+	}
+
+	/**
+	 * Offers an element.
+	 *
+	 * @throws IllegalStateException
+	 *             if this queue is full
+	 */
+	@Override
+	public boolean add(E obj) {
+		if (!offer(obj))
+			throw new IllegalStateException("Queue full.");
+		return true;
+	}
+
+	/**
+	 * Returns most elements held.
+	 *
+	 * @return capacity
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * This implementation polls until empty and must be called by the consumer.
+	 */
+	@Override
+	public void clear() {
+		while (!isEmpty())
+			poll();
+	}
+
+	/**
+	 * Removes up to limit elements, passing each to consumer in order. Called
+	 * by the consumer.
+	 *
+	 * @param consumer
+	 *            receives removed elements
+	 * @param limit
+	 *            most elements removed
+	 * @return number of elements removed
+	 * @throws IllegalArgumentException
+	 *             if limit is negative
+	 */
+	public abstract int drain(Consumer<? super E> consumer, int limit);
+
+	@Override
+	public E element() {
+		E result = peek();
+		if (result == null)
+			throw new NoSuchElementException("No elements in container");
+		return result;
+	}
+
+	/**
+	 * Adds up to limit elements from supplier, fewer if this queue fills.
+	 * Called by a producer.
+	 *
+	 * @param supplier
+	 *            gives non-null elements
+	 * @param limit
+	 *            most elements added
+	 * @return number of elements added
+	 * @throws IllegalArgumentException
+	 *             if limit is negative or supplier gives null
+	 */
+	public abstract int fill(Supplier<? extends E> supplier, int limit);
+
+	@Override
+	public Iterator<E> iterator() {
+		return new RingIterator();
+	}
+
+	/**
+	 * Offers an element, failing if this queue is full.
+	 *
+	 * @return true if added, false if full
+	 * @throws IllegalArgumentException
+	 *             if obj is null
+	 */
+	@Override
+	public abstract boolean offer(E obj);
+
+	@Override
+	public E remove() {
+		E result = poll();
+		if (result == null)
+			throw new NoSuchElementException("No elements in container");
+		return result;
+	}
+
+	/**
+	 * Returns a moment's difference of tail and head, which is exact only while
+	 * no other thread changes this queue.
+	 */
+	@Override
+	public int size() {
+		while (true) {
+			long head = sequences.get(HEAD);
+			long tail = sequences.get(TAIL);
+			if (head == sequences.get(HEAD))
+				return (int) Math.max(0, Math.min(tail - head, capacity()));
+		}
+	}
+
+	/**
+	 * Checks limit of a bulk operation.
+	 *
+	 * @param limit
+	 *            most elements moved
+	 */
+	protected static void checkLimit(int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException("Limit less than zero.");
+	}
+
+}
@@ -0,0 +1,530 @@
+package collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded thread safe deque on top of an ArrayDeque. One lock guards the
+ * elements, and waiting threads park on conditions for space or elements
+ * rather than spinning. Parking on a lock's condition does not pin virtual
+ * threads as monitors do.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class ArrayBlockingDeque<E> extends AbstractDeque<E> implements
+		BlockingDeque<E> {
+
+	/**
+	 * Iterator over a copy of the elements taken when created. Removal
+	 * removes an occurrence from this deque.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class SnapshotIterator implements Iterator<E> {
+
+		private boolean forward;
+		private int lastReturned;
+		private int pointer;
+		private Object[] snapshot;
+
+		private SnapshotIterator(boolean forward) {
+			this.forward = forward;
+			lastReturned = -1;
+			snapshot = toArray();
+			pointer = forward ? 0 : snapshot.length - 1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return forward ? pointer < snapshot.length : pointer > -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+			lastReturned = pointer;
+			pointer = forward ? pointer + 1 : pointer - 1;
+			return (E) snapshot[lastReturned];
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned < 0)
+				throw new IllegalStateException("next not called");
+			if (forward)
+				removeFirstOccurence(snapshot[lastReturned]);
+			else
+				removeLastOccurence(snapshot[lastReturned]);
+			lastReturned = -1;
+		}
+
+	}
+
+	/** Most elements held */
+	private final int capacity;
+	/** elements, guarded by lock */
+	private final ArrayDeque<E> deque;
+	/** Guards deque */
+	private final ReentrantLock lock;
+	/** Signaled when an element is inserted */
+	private final Condition notEmpty;
+	/** Signaled when an element is removed */
+	private final Condition notFull;
+
+	/**
+	 * Constructs an empty ArrayBlockingDeque.
+	 *
+	 * @param capacity
+	 *            most elements held
+	 * @throws IllegalArgumentException
+	 *             if capacity is less than one
+	 */
+	public ArrayBlockingDeque(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity less than one.");
+		this.capacity = capacity;
+		deque = new ArrayDeque<E>(Math.min(capacity, Arrays.DEFAULT_CAPACITY));
+		lock = new ReentrantLock();
+		notEmpty = lock.newCondition();
+		notFull = lock.newCondition();
+	}
+
+	/**
+	 * Inserts an element at the front, failing if full.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @throws IllegalStateException
+	 *             if this deque is full
+	 */
+	@Override
+	public void addFirst(E e) {
+		if (!offerFirst(e))
+			throw new IllegalStateException("Deque full.");
+	}
+
+	/**
+	 * Inserts an element at the back, failing if full.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @throws IllegalStateException
+	 *             if this deque is full
+	 */
+	@Override
+	public void addLast(E e) {
+		if (!offerLast(e))
+			throw new IllegalStateException("Deque full.");
+	}
+
+	/**
+	 * Throws an exception if e is null.
+	 */
+	private static void checkElement(Object e) {
+		if (e == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			deque.clear();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		lock.lock();
+		try {
+			return deque.contains(obj);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * This implementation iterates over a copy taken when called.
+	 */
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new SnapshotIterator(false);
+	}
+
+	/**
+	 * This implementation takes the lock once and moves each element into coll
+	 * before removing it, so an element coll refuses stays in this deque.
+	 */
+	@Override
+	public int drainTo(Collection<? super E> coll, int max) {
+		if (coll == this)
+			throw new IllegalArgumentException(
+					"Cannot drain deque into itself.");
+		if (max < 0)
+			throw new IllegalArgumentException("Max less than zero.");
+		int count = 0;
+		lock.lock();
+		try {
+			for (int n = Math.min(max, deque.size()); count < n; count++) {
+				coll.add(deque.peekFirst());
+				deque.removeFirst();
+			}
+			return count;
+		} finally {
+			if (count > 0)
+				notFull.signalAll();
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns and removes an end element and wakes a waiting inserter.
+	 * PRECONDITION: lock held and deque not empty
+	 */
+	private E extract(boolean first) {
+		E result = first ? deque.removeFirst() : deque.removeLast();
+		notFull.signal();
+		return result;
+	}
+
+	@Override
+	public E getFirst() {
+		lock.lock();
+		try {
+			return deque.getFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E getLast() {
+		lock.lock();
+		try {
+			return deque.getLast();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Inserts an element at an end and wakes a waiting extractor.
+	 * PRECONDITION: lock held and deque not full
+	 */
+	private void insert(E e, boolean first) {
+		if (first)
+			deque.addFirst(e);
+		else
+			deque.addLast(e);
+		notEmpty.signal();
+	}
+
+	/**
+	 * This implementation iterates over a copy taken when called.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new SnapshotIterator(true);
+	}
+
+	@Override
+	public boolean offer(E obj) {
+		return offerLast(obj);
+	}
+
+	/**
+	 * Inserts e at an end if there is space.
+	 */
+	private boolean offer(E e, boolean first) {
+		checkElement(e);
+		lock.lock();
+		try {
+			if (deque.size() == capacity)
+				return false;
+			insert(e, first);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Inserts e at an end, waiting up to nanos for space.
+	 */
+	private boolean offer(E e, boolean first, long nanos)
+			throws InterruptedException {
+		checkElement(e);
+		lock.lockInterruptibly();
+		try {
+			while (deque.size() == capacity) {
+				if (nanos <= 0)
+					return false;
+				nanos = notFull.awaitNanos(nanos);
+			}
+			insert(e, first);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return true if inserted, false if full
+	 */
+	@Override
+	public boolean offerFirst(E e) {
+		return offer(e, true);
+	}
+
+	@Override
+	public boolean offerFirst(E e, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return offer(e, true, unit.toNanos(timeout));
+	}
+
+	/**
+	 * @return true if inserted, false if full
+	 */
+	@Override
+	public boolean offerLast(E e) {
+		return offer(e, false);
+	}
+
+	@Override
+	public boolean offerLast(E e, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return offer(e, false, unit.toNanos(timeout));
+	}
+
+	@Override
+	public E peek() {
+		return peekFirst();
+	}
+
+	@Override
+	public E peekFirst() {
+		lock.lock();
+		try {
+			return deque.peekFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E peekLast() {
+		lock.lock();
+		try {
+			return deque.peekLast();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll() {
+		return pollFirst();
+	}
+
+	/**
+	 * Returns and removes an end element if any.
+	 */
+	private E poll(boolean first) {
+		lock.lock();
+		try {
+			return deque.isEmpty() ? null : extract(first);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns and removes an end element, waiting up to nanos for one.
+	 */
+	private E poll(boolean first, long nanos) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (deque.isEmpty()) {
+				if (nanos <= 0)
+					return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return extract(first);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E pollFirst() {
+		return poll(true);
+	}
+
+	@Override
+	public E pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+		return poll(true, unit.toNanos(timeout));
+	}
+
+	@Override
+	public E pollLast() {
+		return poll(false);
+	}
+
+	@Override
+	public E pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+		return poll(false, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Inserts e at an end, waiting for space.
+	 */
+	private void put(E e, boolean first) throws InterruptedException {
+		checkElement(e);
+		lock.lockInterruptibly();
+		try {
+			while (deque.size() == capacity)
+				notFull.await();
+			insert(e, first);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void putFirst(E e) throws InterruptedException {
+		put(e, true);
+	}
+
+	@Override
+	public void putLast(E e) throws InterruptedException {
+		put(e, false);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return capacity - deque.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E remove() {
+		return removeFirst();
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return removeFirstOccurence(obj);
+	}
+
+	@Override
+	public E removeFirst() {
+		lock.lock();
+		try {
+			if (deque.isEmpty())
+				throw new NoSuchElementException("No elements in container");
+			return extract(true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removeFirstOccurence(Object o) {
+		lock.lock();
+		try {
+			if (!deque.removeFirstOccurence(o))
+				return false;
+			notFull.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E removeLast() {
+		lock.lock();
+		try {
+			if (deque.isEmpty())
+				throw new NoSuchElementException("No elements in container");
+			return extract(false);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removeLastOccurence(Object o) {
+		lock.lock();
+		try {
+			if (!deque.removeLastOccurence(o))
+				return false;
+			notFull.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return deque.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns and removes an end element, waiting for one.
+	 */
+	private E take(boolean first) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (deque.isEmpty())
+				notEmpty.await();
+			return extract(first);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E takeFirst() throws InterruptedException {
+		return take(true);
+	}
+
+	@Override
+	public E takeLast() throws InterruptedException {
+		return take(false);
+	}
+
+	@Override
+	public Object[] toArray() {
+		lock.lock();
+		try {
+			return deque.toArray();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,360 @@
+package collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Deque implemented by a ring buffer whose capacity is a power of two, so
+ * positions wrap with a mask rather than a division. Growing copies the ring
+ * unwrapped into the new array, and bulk operations copy at most two
+ * contiguous segments.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class ArrayDeque<E> extends AbstractDeque<E> {
+
+	/**
+	 * Iterator over positions from head to tail or tail to head.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class RingIterator implements Iterator<E> {
+
+		private boolean forward;
+		private int lastReturned;
+		/** Logical index of next element */
+		private int pointer;
+
+		private RingIterator(boolean forward) {
+			this.forward = forward;
+			lastReturned = -1;
+			pointer = forward ? 0 : size - 1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return forward ? pointer < size : pointer > -1;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+			lastReturned = pointer;
+			pointer = forward ? pointer + 1 : pointer - 1;
+			return data[translate(lastReturned)];
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned < 0)
+				throw new IllegalStateException("next not called");
+			delete(lastReturned);
+			if (forward)
+				pointer--;
+			lastReturned = -1;
+		}
+
+	}
+
+	/** memory for data, length is a power of two */
+	private E[] data;
+	/** index of first element, number of elements */
+	private int head, size;
+
+	/**
+	 * Constructs an empty ArrayDeque with default capacity.
+	 */
+	public ArrayDeque() {
+		this(Arrays.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty ArrayDeque holding at least capacity elements before
+	 * growing.
+	 *
+	 * @param capacity
+	 *            initial capacity, rounded up to a power of two
+	 * @throws IllegalArgumentException
+	 *             if capacity is negative
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayDeque(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity less than zero.");
+		data = (E[]) new Object[powerOfTwo(capacity)];
+		// suppression safe since only elements of type E will be inserted
+	}
+
+	/**
+	 * This implementation copies elements into the ring in at most two
+	 * segments.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> coll) {
+		Object[] added = coll.toArray();
+		for (Object obj : added)
+			if (obj == null)
+				throw new IllegalArgumentException("Cannot add null object.");
+		ensureCapacity(size + added.length);
+		int start = translate(size);
+		int first = Math.min(added.length, data.length - start);
+		System.arraycopy(added, 0, data, start, first);
+		System.arraycopy(added, first, data, 0, added.length - first);
+		size += added.length;
+		return added.length > 0;
+	}
+
+	@Override
+	public void addFirst(E e) {
+		if (e == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		ensureCapacity(size + 1);
+		head = (head - 1) & (data.length - 1);
+		data[head] = e;
+		size++;
+	}
+
+	@Override
+	public void addLast(E e) {
+		if (e == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		ensureCapacity(size + 1);
+		data[translate(size)] = e;
+		size++;
+	}
+
+	/**
+	 * Returns current capacity.
+	 *
+	 * @return number of elements held before growing
+	 */
+	public int capacity() {
+		return data.length;
+	}
+
+	/**
+	 * This implementation keeps the current capacity.
+	 */
+	@Override
+	public void clear() {
+		int first = Math.min(size, data.length - head);
+		java.util.Arrays.fill(data, head, head + first, null);
+		java.util.Arrays.fill(data, 0, size - first, null);
+		head = 0;
+		size = 0;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return indexOf(obj) > -1;
+	}
+
+	/**
+	 * Removes element at a logical index by shifting whichever side of it is
+	 * shorter.
+	 *
+	 * @param index
+	 *            position from head
+	 */
+	private void delete(int index) {
+		if (index < size - index - 1) {
+			for (int i = index; i > 0; i--)
+				data[translate(i)] = data[translate(i - 1)];
+			data[head] = null;
+			head = (head + 1) & (data.length - 1);
+		} else {
+			for (int i = index; i < size - 1; i++)
+				data[translate(i)] = data[translate(i + 1)];
+			data[translate(size - 1)] = null;
+		}
+		size--;
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new RingIterator(false);
+	}
+
+	/**
+	 * Creates room for new elements, copying the ring unwrapped so head moves
+	 * to zero.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > data.length) {
+			E[] copy = (E[]) new Object[powerOfTwo(minCapacity)];
+			int first = Math.min(size, data.length - head);
+			System.arraycopy(data, head, copy, 0, first);
+			System.arraycopy(data, 0, copy, first, size - first);
+			data = copy;
+			head = 0;
+		}
+	}
+
+	@Override
+	public E getFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return data[head];
+	}
+
+	@Override
+	public E getLast() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return data[translate(size - 1)];
+	}
+
+	/**
+	 * Returns logical index of first element equal to obj, -1 if none.
+	 */
+	private int indexOf(Object obj) {
+		if (obj != null)
+			for (int i = 0; i < size; i++)
+				if (obj.equals(data[translate(i)]))
+					return i;
+		return -1;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new RingIterator(true);
+	}
+
+	/**
+	 * Returns logical index of last element equal to obj, -1 if none.
+	 */
+	private int lastIndexOf(Object obj) {
+		if (obj != null)
+			for (int i = size - 1; i > -1; i--)
+				if (obj.equals(data[translate(i)]))
+					return i;
+		return -1;
+	}
+
+	@Override
+	public E pollFirst() {
+		return isEmpty() ? null : removeFirst();
+	}
+
+	@Override
+	public E pollLast() {
+		return isEmpty() ? null : removeLast();
+	}
+
+	/**
+	 * Returns the least power of two which is at least capacity, and at least
+	 * one.
+	 */
+	private static int powerOfTwo(int capacity) {
+		if (capacity > 1 << 30)
+			throw new IllegalStateException("Capacity too large.");
+		return capacity < 2 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	@Override
+	public E remove() {
+		return removeFirst();
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return removeFirstOccurence(obj);
+	}
+
+	@Override
+	public E removeFirst() {
+		E result = getFirst();
+		data[head] = null;
+		head = (head + 1) & (data.length - 1);
+		size--;
+		return result;
+	}
+
+	/**
+	 * Removes the first count elements, copying them out in at most two
+	 * segments.
+	 *
+	 * @param count
+	 *            number of elements removed
+	 * @return removed elements from first to last
+	 * @throws IllegalArgumentException
+	 *             if count is negative or greater than size
+	 */
+	public Object[] removeFirst(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Count less than zero.");
+		if (count > size)
+			throw new IllegalArgumentException("Count greater than size.");
+		Object[] removed = new Object[count];
+		int first = Math.min(count, data.length - head);
+		System.arraycopy(data, head, removed, 0, first);
+		System.arraycopy(data, 0, removed, first, count - first);
+		java.util.Arrays.fill(data, head, head + first, null);
+		java.util.Arrays.fill(data, 0, count - first, null);
+		head = (head + count) & (data.length - 1);
+		size -= count;
+		return removed;
+	}
+
+	@Override
+	public boolean removeFirstOccurence(Object o) {
+		int index = indexOf(o);
+		if (index < 0)
+			return false;
+		delete(index);
+		return true;
+	}
+
+	@Override
+	public E removeLast() {
+		E result = getLast();
+		data[translate(size - 1)] = null;
+		size--;
+		return result;
+	}
+
+	@Override
+	public boolean removeLastOccurence(Object o) {
+		int index = lastIndexOf(o);
+		if (index < 0)
+			return false;
+		delete(index);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This implementation copies elements in at most two segments.
+	 */
+	@Override
+	public Object[] toArray() {
+		Object[] result = new Object[size];
+		int first = Math.min(size, data.length - head);
+		System.arraycopy(data, head, result, 0, first);
+		System.arraycopy(data, 0, result, first, size - first);
+		return result;
+	}
+
+	/**
+	 * Translate logical index into position in ring.
+	 *
+	 * @param index
+	 *            position from head
+	 * @return position in data
+	 */
+	private int translate(int index) {
+		return (head + index) & (data.length - 1);
+	}
+
+}
@@ -1,8 +1,10 @@
 package collection;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 /**
  * Container satisfying list and dequeue interfaces on top of a normal array.
@@ -15,35 +17,18 @@ import java.util.NoSuchElementException;
 public class ArrayList<E> extends AbstractDequeList<E> {
 
 	/**
-	 * List iterator.
+	 * List iterator reading the backing array directly. Fails fast if the list
+	 * is structurally changed other than through this iterator.
 	 * 
 	 * @author Jacob Malter
 	 */
 	private class LstIterator implements ListIterator<E> {
 
-		/** Reference to elements in collection */
-		private E[] elements;
+		/** modCount this iterator agrees with */
+		private int expectedModCount;
 		/** Reference to next element, reference to last element returned */
 		private int pointer, lastReturned;
 
-		/**
-		 * Constructs a new LstIterator.
-		 */
-		private LstIterator() {
-			this(0, true);
-		}
-
-		/**
-		 * Constructs a new LstIterator given direction.
-		 * 
-		 * @param forward
-		 *            true if iterator elements from 0 to size(), otherwise
-		 *            iterator elements reversed
-		 */
-		private LstIterator(boolean forward) {
-			this(0, forward);
-		}
-
 		/**
 		 * Constructs a new LstIterator given index.
 		 * 
@@ -51,48 +36,36 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 		 *            starting position within list
 		 */
 		private LstIterator(int index) {
-			this(index, true);
-		}
-
-		/**
-		 * Constructs a new LstIterator given index and direction.
-		 * 
-		 * @param index
-		 *            starting position within list
-		 * @param forward
-		 *            true if iterator elements from 0 to size(), otherwise
-		 *            iterator elements reversed
-		 */
-		private LstIterator(int index, boolean forward) {
-			try {
-				rangeCheck(index);
-			} catch (ArrayIndexOutOfBoundsException e) {
+			if (0 > index || index > size)
 				throw new IndexOutOfBoundsException("Iterator index invalid.");
-			}
 
+			this.expectedModCount = modCount;
 			this.lastReturned = -1;
 			this.pointer = index;
-			this.elements = (E[]) Arrays.copyOf(data, data.length);
-			if (!forward)
-				collection.Arrays.reverse(elements);
-			// suppressed warning safe since data is type E
 		}
 
 		@Override
 		public void add(E e) {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			elements = Arrays.copyOf(elements, elements.length + 1);
-			for (int i = elements.length; i >= pointer;)
-				elements[i] = elements[--i];
-			elements[pointer++ - 1] = e;
+			ArrayList.this.add(pointer++, e);
+			expectedModCount = modCount;
 			lastReturned = -1;
 		}
 
+		/**
+		 * Throws an exception if the list changed behind this iterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
 		@Override
 		public boolean hasNext() {
-			return pointer < data.length;
+			return pointer < size;
 		}
 
 		@Override
@@ -102,12 +75,13 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 
 		@Override
 		public E next() {
+			checkForComodification();
 			if (!hasNext())
 				throw new NoSuchElementException(
 						"No more elements remaining in iterator");
 
 			lastReturned = pointer;
-			return elements[pointer++];
+			return data[pointer++];
 		}
 
 		@Override
@@ -117,12 +91,13 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 
 		@Override
 		public E previous() {
+			checkForComodification();
 			if (!hasPrevious())
 				throw new NoSuchElementException(
 						"No more elements remaining in iterator");
 
 			lastReturned = --pointer;
-			return elements[pointer];
+			return data[pointer];
 		}
 
 		@Override
@@ -134,10 +109,12 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 		public void remove() {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			System.arraycopy(elements, lastReturned + 1, elements,
-					lastReturned, elements.length - lastReturned + 1);
-			pointer--;
+			ArrayList.this.remove(lastReturned);
+			if (lastReturned < pointer)
+				pointer--;
+			expectedModCount = modCount;
 			lastReturned = -1;
 		}
 
@@ -145,8 +122,9 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 		public void set(E e) {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			elements[lastReturned] = e;
+			data[lastReturned] = e;
 			lastReturned = -1;
 		}
 
@@ -165,30 +143,27 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 	 */
 	@SuppressWarnings("unchecked")
 	public ArrayList() {
-		data = (E[]) collection.Arrays.DEFAULT_ARRAY;
+		data = (E[]) new Object[collection.Arrays.DEFAULT_CAPACITY];
 		// suppression safe since only elements of type E will be inserted
 	}
 
 	@Override
 	public void add(int index, E obj) {
-		ensureCapacity(size() + 1);
-		rangeCheck(index);
+		if (0 > index || index > size)
+			throw new IndexOutOfBoundsException();
 
 		rotateRightAfterIndex(index);
 		data[index] = obj;
+		modCount++;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public void clear() {
-		data = (E[]) collection.Arrays.DEFAULT_ARRAY;
+		data = (E[]) new Object[collection.Arrays.DEFAULT_CAPACITY];
 		// suppression safe since only elements of type E will be inserted
 		size = 0;
-	}
-
-	@Override
-	public Iterator<E> descendingIterator() {
-		return new LstIterator(false);
+		modCount++;
 	}
 
 	/**
@@ -210,7 +185,7 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 
 	@Override
 	public int indexOf(Object obj) {
-		for (int i = 0; i < data.length; i++)
+		for (int i = 0; i < size; i++)
 			if (data[i] == null ? obj == null : data[i].equals(obj))
 				return i;
 		return -1;
@@ -218,12 +193,12 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 
 	@Override
 	public Iterator<E> iterator() {
-		return new LstIterator();
+		return new LstIterator(0);
 	}
 
 	@Override
 	public int lastIndexOf(Object obj) {
-		for (int i = data.length - 1; i > -1; i--)
+		for (int i = size - 1; i > -1; i--)
 			if (data[i] == null ? obj == null : data[i].equals(obj))
 				return i;
 		return -1;
@@ -239,11 +214,11 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 	 * 
 	 * @param index
 	 *            position on list
-	 * @throws ArrayIndexOutOfBoundsException
-	 *             if index is less than 0 or greater than capacity
+	 * @throws IndexOutOfBoundsException
+	 *             if index is less than 0 or at least size
 	 */
 	private void rangeCheck(int index) {
-		if (0 > index || index >= data.length)
+		if (0 > index || index >= size)
 			throw new IndexOutOfBoundsException();
 	}
 
@@ -253,6 +228,7 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 
 		E result = data[index];
 		rotateLeftAfterIndex(index);
+		modCount++;
 		return result;
 	}
 
@@ -268,9 +244,9 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 	private void rotateLeftAfterIndex(int fromIndex) {
 		rangeCheck(fromIndex);
 
-		for (int i = fromIndex; i < size; i++)
-			data[i] = data[i + 1];
-		data[size--] = null;
+		System.arraycopy(data, fromIndex + 1, data, fromIndex, size - fromIndex
+				- 1);
+		data[--size] = null;
 	}
 
 	/**
@@ -284,7 +260,6 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 	 */
 	private void rotateRightAfterIndex(int fromIndex) {
 		ensureCapacity(size() + 1);
-		rangeCheck(fromIndex);
 
 		for (int i = size++; i > fromIndex; i--)
 			data[i] = data[i - 1];
@@ -304,4 +279,9 @@ public class ArrayList<E> extends AbstractDequeList<E> {
 		return size;
 	}
 
+	@Override
+	public Spliterator<E> spliterator() {
+		return new IndexSpliterator();
+	}
+
 }
@@ -16,46 +16,174 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		AbstractQueue<E> implements Navigable<E> {
 
 	/**
-	 * Iterator for array.
+	 * Iterator returning least elements first. Works on a copy of the heap
+	 * rearranged into a min-heap, so creation is linear and each step is
+	 * logarithmic.
 	 * 
 	 * @author Jacob Malter
 	 *
-	 * @param <E>
-	 *            The type of the elements stored in this collection.
 	 */
-	private class HeapIterator implements Iterator<E> {
+	private class DescendingIterator implements Iterator<E> {
 
-		private boolean direction;
-		private int pointer;
-		private E[] sortedArray;
+		/** Number of elements not yet returned */
+		private int length;
+		/** Min-heap of elements not yet returned */
+		private E[] snapshot;
+
+		@SuppressWarnings("unchecked")
+		private DescendingIterator() {
+			length = size;
+			snapshot = (E[]) new Comparable<?>[length];
+			System.arraycopy(heap, 0, snapshot, 0, length);
+			for (int i = (length - 2) / 2; i > -1; i--)
+				sink(i);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return length > 0;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E result = snapshot[0];
+			snapshot[0] = snapshot[--length];
+			snapshot[length] = null;
+			sink(0);
+			return result;
+		}
 
-		private HeapIterator() {
-			this(true);
+		/**
+		 * Moves the element at index down until neither child is less.
+		 * 
+		 * @param index
+		 *            position of moved element
+		 */
+		private void sink(int index) {
+			for (int child = 2 * index + 1; child < length; child = 2 * index + 1) {
+				if (child + 1 < length
+						&& compare(comparator(), snapshot[child + 1],
+								snapshot[child]) < 0)
+					child++;
+				if (compare(comparator(), snapshot[child], snapshot[index]) >= 0)
+					return;
+				Arrays.swap(snapshot, index, child);
+				index = child;
+			}
 		}
 
-		private HeapIterator(boolean forward) {
-			direction = forward;
-			pointer = direction ? 0 : heap.length - 1;
-			sortedArray = heap;
-			Arrays.heapSort(heap);
+	}
+
+	/**
+	 * Iterator returning greatest elements first without changing the heap.
+	 * Keeps a frontier heap of indices whose parents were already returned;
+	 * the next greatest element is always on the frontier, so creation is
+	 * constant and each step is logarithmic in the frontier size.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 */
+	private class OrderedIterator implements Iterator<E> {
+
+		/** Max-heap of heap indices not yet returned */
+		private int[] frontier;
+		/** Number of indices in frontier */
+		private int length;
+
+		private OrderedIterator() {
+			frontier = new int[8];
+			if (size > 0)
+				frontier[length++] = 0;
 		}
 
 		@Override
 		public boolean hasNext() {
-			return direction ? pointer < sortedArray.length : pointer > -1;
+			return length > 0;
+		}
+
+		/**
+		 * Returns whether the element at index i precedes the element at index
+		 * j.
+		 */
+		private boolean higher(int i, int j) {
+			return compare(comparator(), heap[frontier[i]], heap[frontier[j]]) > 0;
 		}
 
 		@Override
 		public E next() {
 			if (!hasNext())
 				throw new NoSuchElementException();
-			E result = heap[pointer];
-			pointer = direction ? pointer + 1 : pointer - 1;
-			return result;
+			int index = frontier[0];
+			frontier[0] = frontier[--length];
+			for (int i = 0, child = 1; child < length; i = child, child = 2 * i + 1) {
+				if (child + 1 < length && higher(child + 1, child))
+					child++;
+				if (!higher(child, i))
+					break;
+				swap(i, child);
+			}
+			int last = Math.min(arity * index + arity + 1, size);
+			for (int child = arity * index + 1; child < last; child++)
+				push(child);
+			return heap[index];
+		}
+
+		/**
+		 * Adds a heap index to frontier.
+		 * 
+		 * @param index
+		 *            heap index of a child of the last returned element
+		 */
+		private void push(int index) {
+			if (length == frontier.length) {
+				int[] copy = frontier;
+				frontier = new int[length * 2];
+				System.arraycopy(copy, 0, frontier, 0, length);
+			}
+			frontier[length] = index;
+			for (int i = length++; i > 0 && higher(i, (i - 1) / 2); i = (i - 1) / 2)
+				swap(i, (i - 1) / 2);
+		}
+
+		private void swap(int i, int j) {
+			int temp = frontier[i];
+			frontier[i] = frontier[j];
+			frontier[j] = temp;
 		}
 
 	}
 
+	/**
+	 * Iterator returning elements in heap layout order.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 */
+	private class UnorderedIterator implements Iterator<E> {
+
+		private int pointer;
+
+		@Override
+		public boolean hasNext() {
+			return pointer < size;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return heap[pointer++];
+		}
+
+	}
+
+	/** Default number of children per heap node */
+	public static final int DEFAULT_ARITY = 2;
+
+	/** Number of children per heap node */
+	private final int arity;
 	/** Used to compare elements */
 	private final Comparator<? super E> comparator;
 	/** elements */
@@ -67,19 +195,76 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 	 * Constructs an empty ArrayPriorityQueue.
 	 */
 	public ArrayPriorityQueue() {
-		this(null);
+		this(null, DEFAULT_ARITY);
 	}
 
 	/**
-	 * Constructs an empty ArrayPriorityQueue given a comparator.
+	 * Constructs an ArrayPriorityQueue containing the elements of a collection.
+	 * The heap is built in linear time rather than by adding each element.
 	 * 
+	 * @param coll
+	 *            elements being added
+	 */
+	public ArrayPriorityQueue(Collection<? extends E> coll) {
+		this(coll, null, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Constructs an ArrayPriorityQueue containing the elements of a collection
+	 * given a comparator and number of children per heap node. The heap is
+	 * built in linear time rather than by adding each element.
+	 * 
+	 * @param coll
+	 *            elements being added
 	 * @param comparator
 	 *            imposes ordering on elements
+	 * @param arity
+	 *            number of children per heap node
 	 */
 	@SuppressWarnings("unchecked")
+	public ArrayPriorityQueue(Collection<? extends E> coll,
+			Comparator<? super E> comparator, int arity) {
+		this(comparator, arity);
+		heap = (E[]) new Comparable<?>[Math.max(coll.size(),
+				Arrays.DEFAULT_CAPACITY)];
+		for (E obj : coll) {
+			if (obj == null)
+				throw new IllegalArgumentException("Cannot add null object.");
+			ensureCapacity(size + 1);
+			heap[size++] = obj;
+		}
+		buildMaxHeap();
+	}
+
+	/**
+	 * Constructs an empty ArrayPriorityQueue given a comparator.
+	 * 
+	 * @param comparator
+	 *            imposes ordering on elements
+	 */
 	public ArrayPriorityQueue(Comparator<? super E> comparator) {
+		this(comparator, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Constructs an empty ArrayPriorityQueue given a comparator and number of
+	 * children per heap node. Wider heaps are shallower, trading comparisons
+	 * per level for fewer cache misses; four suits large queues.
+	 * 
+	 * @param comparator
+	 *            imposes ordering on elements
+	 * @param arity
+	 *            number of children per heap node
+	 * @throws IllegalArgumentException
+	 *             if arity is less than two
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayPriorityQueue(Comparator<? super E> comparator, int arity) {
+		if (arity < 2)
+			throw new IllegalArgumentException("Arity less than two.");
+		this.arity = arity;
 		this.comparator = comparator;
-		heap = (E[]) Arrays.DEFAULT_ARRAY;
+		heap = (E[]) new Comparable<?>[Arrays.DEFAULT_CAPACITY];
 		// suppression safe since only elements of type E will be inserted
 	}
 
@@ -94,22 +279,28 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 	}
 
 	/**
-	 * Converts an array into a maxheap.
+	 * Returns number of children per heap node.
 	 * 
-	 * @param array
-	 *            converted subject
+	 * @return number of children per heap node
 	 */
-	@SuppressWarnings("unused")
-	private void buildMaxHeap(E[] array) {
-		for (int i = (size() - 2) / 2; i > -1; i--)
-			maxHeapify(array, i);
+	public int arity() {
+		return arity;
+	}
+
+	/**
+	 * Converts the backing array into a max-heap in linear time by sifting
+	 * down every parent, last first.
+	 */
+	private void buildMaxHeap() {
+		for (int i = (size() - 2) / arity; i > -1; i--)
+			siftDown(i);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public void clear() {
 		// Suppression safe...you know why.
-		heap = (E[]) Arrays.DEFAULT_ARRAY;
+		heap = (E[]) new Comparable<?>[Arrays.DEFAULT_CAPACITY];
 		size = 0;
 	}
 
@@ -136,9 +327,12 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		return result;
 	}
 
+	/**
+	 * This implementation copies the heap, leaving this queue unchanged.
+	 */
 	@Override
 	public Iterator<E> descendingIterator() {
-		return new HeapIterator(false);
+		return new DescendingIterator();
 	}
 
 	/**
@@ -150,7 +344,7 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		if (minCapacity >= oldCapacity) {
 			int newCapacity = oldCapacity * 2 + 1;
 			E[] copy = heap;
-			heap = (E[]) new Object[newCapacity];
+			heap = (E[]) new Comparable<?>[newCapacity];
 			System.arraycopy(copy, 0, heap, 0, copy.length);
 		}
 	}
@@ -188,9 +382,14 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		return result;
 	}
 
+	/**
+	 * Returns an iterator over elements from greatest to least. Creation takes
+	 * constant time, and this queue is never rearranged. Behavior is undefined
+	 * if this queue is changed during iteration.
+	 */
 	@Override
 	public Iterator<E> iterator() {
-		return new HeapIterator();
+		return new OrderedIterator();
 	}
 
 	@Override
@@ -207,32 +406,6 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		return result;
 	}
 
-	/**
-	 * Rearranges array elements into a max-heap.
-	 * 
-	 * PRECONDTION: subtrees already are max-heaps
-	 * 
-	 * @param array
-	 *            subject of maxHeapify
-	 * @param index
-	 *            position below which elements are sorted
-	 */
-	private void maxHeapify(E[] array, int index) {
-		if (index < 0)
-			throw new IndexOutOfBoundsException("Index less than zero.");
-		else if (index >= heap.length)
-			throw new IndexOutOfBoundsException("Index greater than capacity.");
-		if (2 * index + 1 < size()
-				&& compare(comparator(), array[index], array[2 * index + 1]) < 0) {
-			Arrays.swap(array, index, 2 * index + 1);
-			maxHeapify(array, 2 * index + 1);
-		} else if (2 * index + 2 < size()
-				&& compare(comparator(), array[index], array[2 * index + 2]) < 0) {
-			Arrays.swap(array, index, 2 * index + 2);
-			maxHeapify(array, 2 * index + 2);
-		}
-	}
-
 	@Override
 	public E maximum() {
 		return heap[0];
@@ -240,10 +413,10 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 
 	@Override
 	public E minimum() {
-		int index = heap.length / 2;
-		E min = heap[index++];
-		for (int i = index; i < heap.length; i++)
-			min = compare(comparator(), heap[index], min) < 0 ? heap[index]
+		// least element is a leaf
+		E min = null;
+		for (int i = size() > 1 ? (size() - 2) / arity + 1 : 0; i < size(); i++)
+			min = min == null || compare(comparator(), heap[i], min) < 0 ? heap[i]
 					: min;
 		return min;
 	}
@@ -253,21 +426,52 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		E result = heap[0];
 		heap[0] = heap[--size];
 		heap[size] = null;
-		maxHeapify(heap, 0);
+		if (size > 0)
+			siftDown(0);
 		return result;
 	}
 
+	/**
+	 * Moves the element at index down until no child is greater.
+	 * 
+	 * PRECONDTION: subtrees already are max-heaps
+	 * 
+	 * @param index
+	 *            position of moved element
+	 */
+	private void siftDown(int index) {
+		E obj = heap[index];
+		for (int first = arity * index + 1; first < size; first = arity
+				* index + 1) {
+			int largest = first;
+			int last = Math.min(first + arity, size);
+			for (int child = first + 1; child < last; child++)
+				if (compare(comparator(), heap[child], heap[largest]) > 0)
+					largest = child;
+			if (compare(comparator(), heap[largest], obj) <= 0)
+				break;
+			heap[index] = heap[largest];
+			index = largest;
+		}
+		heap[index] = obj;
+	}
+
+	/**
+	 * Moves the element at index up until its parent is not less.
+	 * 
+	 * @param index
+	 *            position of moved element
+	 */
 	private void siftUp(int index) {
-		if (index == 0)
-			return;
-		else if (index < 0)
-			throw new IndexOutOfBoundsException("Index less than zero.");
-		else if (index >= heap.length)
-			throw new IndexOutOfBoundsException("Index greater than capacity.");
-		if (compare(comparator(), heap[index], heap[(index - 1) / 2]) > 0) {
-			Arrays.swap(heap, index, (index - 1) / 2);
-			siftUp((index - 1) / 2);
+		E obj = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			if (compare(comparator(), obj, heap[parent]) <= 0)
+				break;
+			heap[index] = heap[parent];
+			index = parent;
 		}
+		heap[index] = obj;
 	}
 
 	@Override
@@ -275,4 +479,15 @@ public class ArrayPriorityQueue<E extends Comparable<? super E>> extends
 		return size;
 	}
 
+	/**
+	 * Returns an iterator over elements in no particular order. Cheaper than
+	 * iterator when order does not matter. Behavior is undefined if this queue
+	 * is changed during iteration.
+	 * 
+	 * @return iterator over elements in heap layout order
+	 */
+	public Iterator<E> unorderedIterator() {
+		return new UnorderedIterator();
+	}
+
 }
@@ -1,6 +1,9 @@
 package collection;
 
-import java.util.Random;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
 
 /**
  * Auxilary class containing static operations for arrays.
@@ -10,12 +13,679 @@ import java.util.Random;
  */
 public class Arrays {
 
+	/**
+	 * Merges two sorted runs of src into dst. Large merges split the longer run
+	 * at its middle, binary search the other run for the matching point, and
+	 * merge both pairs of pieces in parallel.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 * @param <T>
+	 *            type of element
+	 */
+	private static class MergeTask<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Comparator<? super T> comparator;
+		private final T[] dst, src;
+		/** Bounds of first and second run in src, start of output in dst */
+		private final int lo1, hi1, lo2, hi2, out;
+
+		private MergeTask(T[] src, T[] dst, int lo1, int hi1, int lo2,
+				int hi2, int out, Comparator<? super T> comparator) {
+			this.comparator = comparator;
+			this.dst = dst;
+			this.hi1 = hi1;
+			this.hi2 = hi2;
+			this.lo1 = lo1;
+			this.lo2 = lo2;
+			this.out = out;
+			this.src = src;
+		}
+
+		@Override
+		protected void compute() {
+			int n1 = hi1 - lo1, n2 = hi2 - lo2;
+			if (n1 + n2 <= PARALLEL_TO_SEQUENTIAL_SORT) {
+				merge(src, lo1, hi1, lo2, hi2, dst, out, comparator);
+				return;
+			}
+			// Equal elements of the first run stay ahead of the second run's
+			int split1, split2;
+			if (n1 >= n2) {
+				split1 = (lo1 + hi1) >>> 1;
+				split2 = search(src, lo2, hi2, src[split1], false, comparator);
+			} else {
+				split2 = (lo2 + hi2) >>> 1;
+				split1 = search(src, lo1, hi1, src[split2], true, comparator);
+			}
+			invokeAll(new MergeTask<T>(src, dst, lo1, split1, lo2, split2,
+					out, comparator), new MergeTask<T>(src, dst, split1, hi1,
+					split2, hi2, out + split1 - lo1 + split2 - lo2, comparator));
+		}
+
+	}
+
+	/**
+	 * Sorts a range whose elements are equal in src and dst, leaving the
+	 * result in dst. Halves sort into src in parallel, swapping roles at each
+	 * level, so the buffer is never copied back.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 * @param <T>
+	 *            type of element
+	 */
+	private static class MergeSortTask<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Comparator<? super T> comparator;
+		private final T[] dst, src;
+		private final int lo, hi;
+
+		private MergeSortTask(T[] src, T[] dst, int lo, int hi,
+				Comparator<? super T> comparator) {
+			this.comparator = comparator;
+			this.dst = dst;
+			this.hi = hi;
+			this.lo = lo;
+			this.src = src;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= PARALLEL_TO_SEQUENTIAL_SORT) {
+				mergeSort(src, dst, lo, hi, comparator);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new MergeSortTask<T>(dst, src, lo, mid, comparator),
+					new MergeSortTask<T>(dst, src, mid, hi, comparator));
+			if (comparator.compare(src[mid - 1], src[mid]) <= 0)
+				System.arraycopy(src, lo, dst, lo, hi - lo);
+			else
+				new MergeTask<T>(src, dst, lo, mid, mid, hi, lo, comparator)
+						.invoke();
+		}
+
+	}
+
+	/**
+	 * Adaptive stable sort after Tim Peters' list sort. Finds natural runs,
+	 * reversing strictly descending ones, and extends short runs by binary
+	 * insertion. Runs wait on a stack and are merged while lengths keep
+	 * shrinking geometrically. Merges switch to galloping when one run keeps
+	 * winning, so data that is already nearly sorted costs close to O(n).
+	 * 
+	 * @author Jacob Malter
+	 *
+	 * @param <T>
+	 *            type of element
+	 */
+	private static class TimSort<T> {
+
+		/** Consecutive wins of one run before galloping */
+		private static final int MIN_GALLOP = 7;
+		/** Arrays shorter than this are sorted by binary insertion alone */
+		private static final int MIN_MERGE = 32;
+		/** Most runs pending, enough for any int length */
+		private static final int STACK_LENGTH = 49;
+
+		private final T[] array;
+		private final Comparator<? super T> comparator;
+		/** Current gallop threshold, raised when galloping does not pay off */
+		private int minGallop;
+		/** Start and length of each pending run */
+		private final int[] runBase, runLength;
+		/** Number of pending runs */
+		private int stackSize;
+		/** Holds the shorter run during a merge, grown on demand */
+		private T[] tmp;
+
+		private TimSort(T[] array, Comparator<? super T> comparator) {
+			this.array = array;
+			this.comparator = comparator;
+			minGallop = MIN_GALLOP;
+			runBase = new int[STACK_LENGTH];
+			runLength = new int[STACK_LENGTH];
+		}
+
+		/**
+		 * Sorts a range by binary insertion given that its first part is
+		 * sorted.
+		 * 
+		 * @param array
+		 *            subject of sort
+		 * @param lo
+		 *            first index sorted
+		 * @param hi
+		 *            index after last sorted
+		 * @param start
+		 *            first index not yet sorted
+		 * @param comparator
+		 *            ordering being used
+		 */
+		private static <T> void binaryInsertionSort(T[] array, int lo, int hi,
+				int start, Comparator<? super T> comparator) {
+			if (start == lo)
+				start++;
+			for (; start < hi; start++) {
+				T pivot = array[start];
+				int index = search(array, lo, start, pivot, true, comparator);
+				System.arraycopy(array, index, array, index + 1, start - index);
+				array[index] = pivot;
+			}
+		}
+
+		/**
+		 * Returns length of the run starting at lo, reversing it if strictly
+		 * descending. Strictness keeps the sort stable.
+		 * 
+		 * @param array
+		 *            subject of sort
+		 * @param lo
+		 *            start of run
+		 * @param hi
+		 *            index after last element considered
+		 * @param comparator
+		 *            ordering being used
+		 * @return length of run
+		 */
+		private static <T> int countRun(T[] array, int lo, int hi,
+				Comparator<? super T> comparator) {
+			int runHi = lo + 1;
+			if (runHi == hi)
+				return 1;
+			if (comparator.compare(array[runHi++], array[lo]) < 0) {
+				while (runHi < hi
+						&& comparator.compare(array[runHi], array[runHi - 1]) < 0)
+					runHi++;
+				reverse(array, lo, runHi);
+			} else {
+				while (runHi < hi
+						&& comparator.compare(array[runHi], array[runHi - 1]) >= 0)
+					runHi++;
+			}
+			return runHi - lo;
+		}
+
+		/**
+		 * Returns tmp, growing it to hold at least a given number of elements.
+		 * 
+		 * @param minCapacity
+		 *            elements needed
+		 * @return merge buffer
+		 */
+		private T[] ensureCapacity(int minCapacity) {
+			if (tmp == null || tmp.length < minCapacity) {
+				int newCapacity = Math.max(minCapacity, Math.min(
+						array.length >>> 1, tmp == null ? 0 : tmp.length << 1));
+				tmp = java.util.Arrays.copyOf(array, newCapacity);
+			}
+			return tmp;
+		}
+
+		/**
+		 * Finds where key goes in a sorted range, before equal elements,
+		 * searching outward from hint by doubling steps.
+		 * 
+		 * @param key
+		 *            element being placed
+		 * @param a
+		 *            holds range
+		 * @param base
+		 *            start of range
+		 * @param length
+		 *            length of range
+		 * @param hint
+		 *            offset where search starts
+		 * @param comparator
+		 *            ordering being used
+		 * @return offset of first element not less than key
+		 */
+		private static <T> int gallopLeft(T key, T[] a, int base, int length,
+				int hint, Comparator<? super T> comparator) {
+			int lastOffset = 0, offset = 1;
+			if (comparator.compare(key, a[base + hint]) > 0) {
+				int maxOffset = length - hint;
+				while (offset < maxOffset
+						&& comparator.compare(key, a[base + hint + offset]) > 0) {
+					lastOffset = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0)
+						offset = maxOffset;
+				}
+				if (offset > maxOffset)
+					offset = maxOffset;
+				lastOffset += hint;
+				offset += hint;
+			} else {
+				int maxOffset = hint + 1;
+				while (offset < maxOffset
+						&& comparator.compare(key, a[base + hint - offset]) <= 0) {
+					lastOffset = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0)
+						offset = maxOffset;
+				}
+				if (offset > maxOffset)
+					offset = maxOffset;
+				int temp = lastOffset;
+				lastOffset = hint - offset;
+				offset = hint - temp;
+			}
+			lastOffset++;
+			while (lastOffset < offset) {
+				int mid = lastOffset + ((offset - lastOffset) >>> 1);
+				if (comparator.compare(key, a[base + mid]) > 0)
+					lastOffset = mid + 1;
+				else
+					offset = mid;
+			}
+			return offset;
+		}
+
+		/**
+		 * Finds where key goes in a sorted range, after equal elements,
+		 * searching outward from hint by doubling steps.
+		 * 
+		 * @param key
+		 *            element being placed
+		 * @param a
+		 *            holds range
+		 * @param base
+		 *            start of range
+		 * @param length
+		 *            length of range
+		 * @param hint
+		 *            offset where search starts
+		 * @param comparator
+		 *            ordering being used
+		 * @return offset of first element greater than key
+		 */
+		private static <T> int gallopRight(T key, T[] a, int base, int length,
+				int hint, Comparator<? super T> comparator) {
+			int lastOffset = 0, offset = 1;
+			if (comparator.compare(key, a[base + hint]) < 0) {
+				int maxOffset = hint + 1;
+				while (offset < maxOffset
+						&& comparator.compare(key, a[base + hint - offset]) < 0) {
+					lastOffset = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0)
+						offset = maxOffset;
+				}
+				if (offset > maxOffset)
+					offset = maxOffset;
+				int temp = lastOffset;
+				lastOffset = hint - offset;
+				offset = hint - temp;
+			} else {
+				int maxOffset = length - hint;
+				while (offset < maxOffset
+						&& comparator.compare(key, a[base + hint + offset]) >= 0) {
+					lastOffset = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0)
+						offset = maxOffset;
+				}
+				if (offset > maxOffset)
+					offset = maxOffset;
+				lastOffset += hint;
+				offset += hint;
+			}
+			lastOffset++;
+			while (lastOffset < offset) {
+				int mid = lastOffset + ((offset - lastOffset) >>> 1);
+				if (comparator.compare(key, a[base + mid]) < 0)
+					offset = mid;
+				else
+					lastOffset = mid + 1;
+			}
+			return offset;
+		}
+
+		/**
+		 * Merges pending runs at i and i + 1. Elements of the first run already
+		 * below the second run, and of the second already above the first,
+		 * stay in place.
+		 * 
+		 * @param i
+		 *            stack index of first run
+		 */
+		private void mergeAt(int i) {
+			int base1 = runBase[i], length1 = runLength[i];
+			int base2 = runBase[i + 1], length2 = runLength[i + 1];
+			runLength[i] = length1 + length2;
+			if (i == stackSize - 3) {
+				runBase[i + 1] = runBase[i + 2];
+				runLength[i + 1] = runLength[i + 2];
+			}
+			stackSize--;
+
+			int k = gallopRight(array[base2], array, base1, length1, 0,
+					comparator);
+			base1 += k;
+			length1 -= k;
+			if (length1 == 0)
+				return;
+			length2 = gallopLeft(array[base1 + length1 - 1], array, base2,
+					length2, length2 - 1, comparator);
+			if (length2 == 0)
+				return;
+
+			if (length1 <= length2)
+				mergeLow(base1, length1, base2, length2);
+			else
+				mergeHigh(base1, length1, base2, length2);
+		}
+
+		/**
+		 * Merges runs until no run is at least the sum of the two above it and
+		 * lengths shrink up the stack.
+		 */
+		private void mergeCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0
+						&& runLength[n - 1] <= runLength[n] + runLength[n + 1]
+						|| n > 1
+						&& runLength[n - 2] <= runLength[n - 1] + runLength[n]) {
+					if (runLength[n - 1] < runLength[n + 1])
+						n--;
+				} else if (runLength[n] > runLength[n + 1])
+					break;
+				mergeAt(n);
+			}
+		}
+
+		/**
+		 * Merges all pending runs into one.
+		 */
+		private void mergeForceCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLength[n - 1] < runLength[n + 1])
+					n--;
+				mergeAt(n);
+			}
+		}
+
+		/**
+		 * Merges adjacent runs from the back, copying the second, shorter run
+		 * aside.
+		 * 
+		 * PRECONDITION: last of first run belongs last; first of second run
+		 * belongs before first run
+		 */
+		private void mergeHigh(int base1, int length1, int base2, int length2) {
+			T[] a = array, tmp = ensureCapacity(length2);
+			System.arraycopy(a, base2, tmp, 0, length2);
+			int cursor1 = base1 + length1 - 1, cursor2 = length2 - 1;
+			int dest = base2 + length2 - 1;
+
+			a[dest--] = a[cursor1--];
+			if (--length1 == 0) {
+				System.arraycopy(tmp, 0, a, dest - (length2 - 1), length2);
+				return;
+			}
+			if (length2 == 1) {
+				dest -= length1;
+				cursor1 -= length1;
+				System.arraycopy(a, cursor1 + 1, a, dest + 1, length1);
+				a[dest] = tmp[cursor2];
+				return;
+			}
+
+			int minGallop = this.minGallop;
+			outer: while (true) {
+				int count1 = 0, count2 = 0;
+				// One element at a time until a run wins minGallop times
+				do {
+					if (comparator.compare(tmp[cursor2], a[cursor1]) < 0) {
+						a[dest--] = a[cursor1--];
+						count1++;
+						count2 = 0;
+						if (--length1 == 0)
+							break outer;
+					} else {
+						a[dest--] = tmp[cursor2--];
+						count2++;
+						count1 = 0;
+						if (--length2 == 1)
+							break outer;
+					}
+				} while ((count1 | count2) < minGallop);
+
+				// Gallop while runs keep winning in blocks
+				do {
+					count1 = length1
+							- gallopRight(tmp[cursor2], a, base1, length1,
+									length1 - 1, comparator);
+					if (count1 != 0) {
+						dest -= count1;
+						cursor1 -= count1;
+						length1 -= count1;
+						System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+						if (length1 == 0)
+							break outer;
+					}
+					a[dest--] = tmp[cursor2--];
+					if (--length2 == 1)
+						break outer;
+
+					count2 = length2
+							- gallopLeft(a[cursor1], tmp, 0, length2,
+									length2 - 1, comparator);
+					if (count2 != 0) {
+						dest -= count2;
+						cursor2 -= count2;
+						length2 -= count2;
+						System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+						if (length2 <= 1)
+							break outer;
+					}
+					a[dest--] = a[cursor1--];
+					if (--length1 == 0)
+						break outer;
+					minGallop--;
+				} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+				if (minGallop < 0)
+					minGallop = 0;
+				minGallop += 2;
+			}
+			this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+			if (length2 == 1) {
+				dest -= length1;
+				cursor1 -= length1;
+				System.arraycopy(a, cursor1 + 1, a, dest + 1, length1);
+				a[dest] = tmp[cursor2];
+			} else if (length2 == 0)
+				throw new IllegalArgumentException(
+						"Comparator violates its contract.");
+			else
+				System.arraycopy(tmp, 0, a, dest - (length2 - 1), length2);
+		}
+
+		/**
+		 * Merges adjacent runs from the front, copying the first, shorter run
+		 * aside.
+		 * 
+		 * PRECONDITION: first of second run belongs first; last of first run
+		 * belongs after second run
+		 */
+		private void mergeLow(int base1, int length1, int base2, int length2) {
+			T[] a = array, tmp = ensureCapacity(length1);
+			System.arraycopy(a, base1, tmp, 0, length1);
+			int cursor1 = 0, cursor2 = base2, dest = base1;
+
+			a[dest++] = a[cursor2++];
+			if (--length2 == 0) {
+				System.arraycopy(tmp, cursor1, a, dest, length1);
+				return;
+			}
+			if (length1 == 1) {
+				System.arraycopy(a, cursor2, a, dest, length2);
+				a[dest + length2] = tmp[cursor1];
+				return;
+			}
+
+			int minGallop = this.minGallop;
+			outer: while (true) {
+				int count1 = 0, count2 = 0;
+				// One element at a time until a run wins minGallop times
+				do {
+					if (comparator.compare(a[cursor2], tmp[cursor1]) < 0) {
+						a[dest++] = a[cursor2++];
+						count2++;
+						count1 = 0;
+						if (--length2 == 0)
+							break outer;
+					} else {
+						a[dest++] = tmp[cursor1++];
+						count1++;
+						count2 = 0;
+						if (--length1 == 1)
+							break outer;
+					}
+				} while ((count1 | count2) < minGallop);
+
+				// Gallop while runs keep winning in blocks
+				do {
+					count1 = gallopRight(a[cursor2], tmp, cursor1, length1, 0,
+							comparator);
+					if (count1 != 0) {
+						System.arraycopy(tmp, cursor1, a, dest, count1);
+						dest += count1;
+						cursor1 += count1;
+						length1 -= count1;
+						if (length1 <= 1)
+							break outer;
+					}
+					a[dest++] = a[cursor2++];
+					if (--length2 == 0)
+						break outer;
+
+					count2 = gallopLeft(tmp[cursor1], a, cursor2, length2, 0,
+							comparator);
+					if (count2 != 0) {
+						System.arraycopy(a, cursor2, a, dest, count2);
+						dest += count2;
+						cursor2 += count2;
+						length2 -= count2;
+						if (length2 == 0)
+							break outer;
+					}
+					a[dest++] = tmp[cursor1++];
+					if (--length1 == 1)
+						break outer;
+					minGallop--;
+				} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+				if (minGallop < 0)
+					minGallop = 0;
+				minGallop += 2;
+			}
+			this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+			if (length1 == 1) {
+				System.arraycopy(a, cursor2, a, dest, length2);
+				a[dest + length2] = tmp[cursor1];
+			} else if (length1 == 0)
+				throw new IllegalArgumentException(
+						"Comparator violates its contract.");
+			else
+				System.arraycopy(tmp, cursor1, a, dest, length1);
+		}
+
+		/**
+		 * Returns shortest run length worth merging, between MIN_MERGE / 2 and
+		 * MIN_MERGE, chosen so n / length is close to a power of two.
+		 * 
+		 * @param n
+		 *            length of array
+		 * @return minimum run length
+		 */
+		private static int minRunLength(int n) {
+			int r = 0;
+			while (n >= MIN_MERGE) {
+				r |= n & 1;
+				n >>= 1;
+			}
+			return n + r;
+		}
+
+		/**
+		 * Pushes a run onto the stack of pending runs.
+		 * 
+		 * @param base
+		 *            start of run
+		 * @param length
+		 *            length of run
+		 */
+		private void pushRun(int base, int length) {
+			runBase[stackSize] = base;
+			runLength[stackSize] = length;
+			stackSize++;
+		}
+
+		/**
+		 * Sorts a range.
+		 * 
+		 * @param array
+		 *            subject of sort
+		 * @param lo
+		 *            first index sorted
+		 * @param hi
+		 *            index after last sorted
+		 * @param comparator
+		 *            ordering being used
+		 */
+		private static <T> void sort(T[] array, int lo, int hi,
+				Comparator<? super T> comparator) {
+			int remaining = hi - lo;
+			if (remaining < 2)
+				return;
+			if (remaining < MIN_MERGE) {
+				int initial = countRun(array, lo, hi, comparator);
+				binaryInsertionSort(array, lo, hi, lo + initial, comparator);
+				return;
+			}
+
+			TimSort<T> sorter = new TimSort<T>(array, comparator);
+			int minRun = minRunLength(remaining);
+			do {
+				int length = countRun(array, lo, hi, comparator);
+				if (length < minRun) {
+					int forced = Math.min(remaining, minRun);
+					binaryInsertionSort(array, lo, lo + forced, lo + length,
+							comparator);
+					length = forced;
+				}
+				sorter.pushRun(lo, length);
+				sorter.mergeCollapse();
+				lo += length;
+				remaining -= length;
+			} while (remaining != 0);
+			sorter.mergeForceCollapse();
+		}
+
+	}
+
 	/** Default size for starting array in collections back by an array */
 	public static final int DEFAULT_CAPACITY = 16;
 	/** Empty array used to initially back array based collections */
 	public static final Object[] DEFAULT_ARRAY = new Object[DEFAULT_CAPACITY];
 	private static final int MERGE_TO_INSERT_SORT = 96;
+	/** Ranges at most this long are sorted or merged on one thread */
+	private static final int PARALLEL_TO_SEQUENTIAL_SORT = 1 << 13;
 	private static final int QUICK_TO_INSERT_SORT = 48;
+	/** Bits of a key counted by each radix pass */
+	private static final int RADIX_BITS = 8;
+	/** Number of distinct digits in a radix pass */
+	private static final int RADIX = 1 << RADIX_BITS;
 
 	private Arrays() {
 	}
@@ -124,6 +794,36 @@ public class Arrays {
 		return result;
 	}
 
+	/**
+	 * Returns the byte of a key at a given shift as a radix digit. The sign
+	 * bit is flipped in the top byte so negative keys come first.
+	 * 
+	 * @param key
+	 *            value being sorted
+	 * @param shift
+	 *            bits below the byte
+	 * @return digit between 0 and RADIX - 1
+	 */
+	private static int digit(int key, int shift) {
+		int digit = (key >>> shift) & (RADIX - 1);
+		return shift == Integer.SIZE - RADIX_BITS ? digit ^ RADIX >>> 1 : digit;
+	}
+
+	/**
+	 * Returns the byte of a key at a given shift as a radix digit. The sign
+	 * bit is flipped in the top byte so negative keys come first.
+	 * 
+	 * @param key
+	 *            value being sorted
+	 * @param shift
+	 *            bits below the byte
+	 * @return digit between 0 and RADIX - 1
+	 */
+	private static int digit(long key, int shift) {
+		int digit = (int) (key >>> shift) & (RADIX - 1);
+		return shift == Long.SIZE - RADIX_BITS ? digit ^ RADIX >>> 1 : digit;
+	}
+
 	/**
 	 * Computes dot product of two arrays of int.
 	 * 
@@ -166,6 +866,32 @@ public class Arrays {
 			array[i] = heap.remove();
 	}
 
+	/**
+	 * Sorts a range in place by building a max-heap on it and repeatedly
+	 * moving its root to the end.
+	 * 
+	 * @param array
+	 *            subject of heapSort
+	 * @param lo
+	 *            first index sorted
+	 * @param hi
+	 *            index after last sorted
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void heapSort(T[] array, int lo, int hi,
+			Comparator<? super T> comparator) {
+		int size = hi - lo;
+		for (int i = size / 2 - 1; i >= 0; i--)
+			siftDown(array, lo, i, size, comparator);
+		for (int end = size - 1; end > 0; end--) {
+			T max = array[lo];
+			array[lo] = array[lo + end];
+			array[lo + end] = max;
+			siftDown(array, lo, 0, end, comparator);
+		}
+	}
+
 	/**
 	 * Sorts an array by swapping elements until an element is less than its
 	 * previous swapped element or at the beginning. Reasonable on smaller (less
@@ -184,12 +910,52 @@ public class Arrays {
 	 *            type of element
 	 */
 	public static <T extends Comparable<? super T>> void insertionSort(T[] array) {
-		if (array.length < 2)
-			return;
-		for (int i = 2; i < array.length; i++) {
-			for (int j = i; j > 1 && (array[j].compareTo(array[j - 1])) < 0; j--) {
-				swap(array, j, j - 1);
-			}
+		insertionSort(array, Comparator.<T> naturalOrder());
+	}
+
+	/**
+	 * Sorts an array by shifting each element left past greater elements,
+	 * ordering elements with a given comparator.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(1)
+	 * 
+	 * Comparisons and Swaps: O(n) to O(n^2)
+	 * 
+	 * @param array
+	 *            subject of insertionSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void insertionSort(T[] array,
+			Comparator<? super T> comparator) {
+		insertionSort(array, 0, array.length, comparator);
+	}
+
+	/**
+	 * Sorts a range by shifting each element left past greater elements.
+	 * Stable.
+	 * 
+	 * @param array
+	 *            subject of insertionSort
+	 * @param lo
+	 *            first index sorted
+	 * @param hi
+	 *            index after last sorted
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void insertionSort(T[] array, int lo, int hi,
+			Comparator<? super T> comparator) {
+		for (int i = lo + 1; i < hi; i++) {
+			T current = array[i];
+			int j = i;
+			for (; j > lo && comparator.compare(current, array[j - 1]) < 0; j--)
+				array[j] = array[j - 1];
+			array[j] = current;
 		}
 	}
 
@@ -240,6 +1006,36 @@ public class Arrays {
 		return max;
 	}
 
+	/**
+	 * Merges two sorted runs of src into dst, taking from the first run on
+	 * ties.
+	 * 
+	 * @param src
+	 *            holds both runs
+	 * @param lo1
+	 *            start of first run
+	 * @param hi1
+	 *            end of first run
+	 * @param lo2
+	 *            start of second run
+	 * @param hi2
+	 *            end of second run
+	 * @param dst
+	 *            receives merged elements
+	 * @param out
+	 *            position of first merged element in dst
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void merge(T[] src, int lo1, int hi1, int lo2,
+			int hi2, T[] dst, int out, Comparator<? super T> comparator) {
+		while (lo1 < hi1 && lo2 < hi2)
+			dst[out++] = comparator.compare(src[lo2], src[lo1]) < 0 ? src[lo2++]
+					: src[lo1++];
+		System.arraycopy(src, lo1, dst, out, hi1 - lo1);
+		System.arraycopy(src, lo2, dst, out + hi1 - lo1, hi2 - lo2);
+	}
+
 	/**
 	 * Recursively sorts an array by merging sorted halves. Its main advantages
 	 * are stability and predictable performance on large arrays. Reasonable on
@@ -259,34 +1055,59 @@ public class Arrays {
 	 *            type of element
 	 */
 	public static <T extends Comparable<? super T>> void mergeSort(T[] array) {
+		mergeSort(array, Comparator.<T> naturalOrder());
+	}
+
+	/**
+	 * Sorts an array by merging sorted halves, ordering elements with a given
+	 * comparator. Allocates one buffer for the whole sort. Skips merging halves
+	 * already in order.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * @param array
+	 *            subject of mergeSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void mergeSort(T[] array, Comparator<? super T> comparator) {
 		if (array.length < 2)
 			return;
-		else if (array.length < MERGE_TO_INSERT_SORT) {
-			insertionSort(array);
+		mergeSort(array.clone(), array, 0, array.length, comparator);
+	}
+
+	/**
+	 * Sorts a range whose elements are equal in src and dst, leaving the
+	 * result in dst and garbage in src.
+	 * 
+	 * @param src
+	 *            buffer holding the same range as dst
+	 * @param dst
+	 *            receives sorted range
+	 * @param lo
+	 *            first index sorted
+	 * @param hi
+	 *            index after last sorted
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void mergeSort(T[] src, T[] dst, int lo, int hi,
+			Comparator<? super T> comparator) {
+		if (hi - lo < MERGE_TO_INSERT_SORT) {
+			insertionSort(dst, lo, hi, comparator);
 			return;
 		}
-		int half = array.length / 2;
-
-		// suppress safe since only elements of type T will be copied into array
-		@SuppressWarnings("unchecked")
-		T[] firstHalf = (T[]) new Object[half];
-		for (int i = 0; i < half; i++)
-			firstHalf[i] = array[i];
-		@SuppressWarnings("unchecked")
-		T[] secondHalf = (T[]) new Object[array.length - half];
-		for (int i = 0; i < array.length - half; i++)
-			secondHalf[i] = array[i + half];
-
-		mergeSort(firstHalf);
-		mergeSort(secondHalf);
-		for (int i = 0, j = 0, k = 0; i < array.length; i++)
-			if (j < firstHalf.length && k < secondHalf.length)
-				array[i] = (firstHalf[j]).compareTo(secondHalf[k]) < 0 ? firstHalf[j++]
-						: secondHalf[k++];
-			else if (j < firstHalf.length && k >= secondHalf.length)
-				array[i] = firstHalf[j++];
-			else if (k < secondHalf.length && j >= firstHalf.length)
-				array[i] = secondHalf[k++];
+		int mid = (lo + hi) >>> 1;
+		mergeSort(dst, src, lo, mid, comparator);
+		mergeSort(dst, src, mid, hi, comparator);
+		if (comparator.compare(src[mid - 1], src[mid]) <= 0)
+			System.arraycopy(src, lo, dst, lo, hi - lo);
+		else
+			merge(src, lo, mid, mid, hi, dst, lo, comparator);
 	}
 
 	/**
@@ -311,45 +1132,65 @@ public class Arrays {
 	}
 
 	/**
-	 * Cuts an array into two parts. Elements at the front less than the pivot
-	 * and elements at the end greater than the pivot. Ideally, each part is
-	 * 50/50 split. 10/90 split is bounded by O(nlog(n)). Worst case, the pivot
-	 * is at the end. Least elements are first.
+	 * Sorts an array like mergeSort, sorting and merging large halves in
+	 * parallel on the common fork/join pool. Falls back to mergeSort on small
+	 * arrays or when the pool has one thread. Least elements are first.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
 	 * 
 	 * @param array
-	 *            target array being partitioned
-	 * @param first
-	 *            where first part starts
-	 * @param last
-	 *            where second part starts
-	 * @param pivot
-	 *            element used to divide other elements
+	 *            subject of parallelMergeSort
 	 * @param <T>
 	 *            type of element
-	 * @return pivot index
 	 */
-	private static <T extends Comparable<? super T>> int partition(T[] array,
-			int first, int last, T pivot) {
-		int i = first;
-		for (int j = first + 1; j < last; j++)
-			if ((array[j]).compareTo(pivot) <= 0)
-				swap(array, ++i, j);
-		swap(array, first, i);
-		return i;
+	public static <T extends Comparable<? super T>> void parallelMergeSort(
+			T[] array) {
+		parallelMergeSort(array, Comparator.<T> naturalOrder());
 	}
 
 	/**
-	 * Reasonable as general purpose sorting. Relies on insertion sort for small
-	 * lists. Uses randomized pivots to reduce worse-case scenarios. With
-	 * tuning, runs much faster than mergesort. Least elements are first.
+	 * Sorts an array like mergeSort with a given comparator, sorting and
+	 * merging large halves in parallel on the common fork/join pool.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * @param array
+	 *            subject of parallelMergeSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void parallelMergeSort(T[] array,
+			Comparator<? super T> comparator) {
+		if (array.length <= PARALLEL_TO_SEQUENTIAL_SORT
+				|| ForkJoinPool.getCommonPoolParallelism() < 2) {
+			mergeSort(array, comparator);
+			return;
+		}
+		ForkJoinPool.commonPool().invoke(
+				new MergeSortTask<T>(array.clone(), array, 0, array.length,
+						comparator));
+	}
+
+	/**
+	 * Introspective sort. Partitions around two pivots, the second and fourth
+	 * of five sorted samples, into less, between and greater parts. Switches
+	 * to heapsort once recursion is deeper than twice log n, so no input
+	 * drives it quadratic, and to insertion sort on small ranges. Least
+	 * elements are first.
 	 * 
 	 * Stability: Equal elements are changed.
 	 * 
-	 * Extra space: O(1)
+	 * Extra space: O(log(n))
 	 * 
-	 * Comparisons: O(n^2) but typically O(nlog(n))
+	 * Comparisons: O(nlog(n))
 	 * 
-	 * Swaps: O(n^2) but typically O(nlog(n))
+	 * Swaps: O(nlog(n))
 	 * 
 	 * @param array
 	 *            target array with elements
@@ -357,49 +1198,179 @@ public class Arrays {
 	 *            type of element
 	 */
 	public static <T extends Comparable<? super T>> void quickSort(T[] array) {
-		quickSort(array, 0, array.length);
+		quickSort(array, Comparator.<T> naturalOrder());
 	}
 
-	private static <T extends Comparable<? super T>> void quickSort(T[] array,
-			int first, int last) {
+	/**
+	 * Introspective sort, ordering elements with a given comparator.
+	 * 
+	 * Stability: Equal elements are changed.
+	 * 
+	 * Extra space: O(log(n))
+	 * 
+	 * Comparisons: O(nlog(n))
+	 * 
+	 * @param array
+	 *            target array with elements
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void quickSort(T[] array, Comparator<? super T> comparator) {
 		if (array.length < 2)
 			return;
-		else if (array.length < QUICK_TO_INSERT_SORT)
-			insertionSort(array);
-		else if (first < last) {
-			int pivot = randomPartition(array, first, last);
-			if (pivot < array.length / 2) {
-				quickSort(array, first, pivot - 1);
-				quickSort(array, pivot + 1, last);
-			} else {
-				quickSort(array, pivot + 1, last);
-				quickSort(array, first, pivot - 1);
+		quickSort(array, 0, array.length,
+				2 * (31 - Integer.numberOfLeadingZeros(array.length)),
+				comparator);
+	}
+
+	/**
+	 * Sorts a range by dual-pivot partitioning.
+	 * 
+	 * @param array
+	 *            target array with elements
+	 * @param lo
+	 *            first index sorted
+	 * @param hi
+	 *            index after last sorted
+	 * @param depth
+	 *            partitions left before falling back to heapsort
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void quickSort(T[] array, int lo, int hi, int depth,
+			Comparator<? super T> comparator) {
+		while (hi - lo >= QUICK_TO_INSERT_SORT) {
+			if (depth-- == 0) {
+				heapSort(array, lo, hi, comparator);
+				return;
+			}
+
+			// Sort five evenly spaced samples and take the outer pivots
+			int seventh = (hi - lo) / 7;
+			int e3 = (lo + hi) >>> 1;
+			int[] samples = { e3 - 2 * seventh, e3 - seventh, e3, e3 + seventh,
+					e3 + 2 * seventh };
+			for (int i = 1; i < samples.length; i++) {
+				T current = array[samples[i]];
+				int j = i;
+				for (; j > 0
+						&& comparator.compare(current, array[samples[j - 1]]) < 0; j--)
+					array[samples[j]] = array[samples[j - 1]];
+				array[samples[j]] = current;
 			}
+			T pivot1 = array[samples[1]], pivot2 = array[samples[3]];
+			array[samples[1]] = array[lo];
+			array[samples[3]] = array[hi - 1];
+
+			// lo + 1 to less are below pivot1; great to hi - 2 above pivot2
+			int less = lo + 1, great = hi - 2;
+			for (int k = less; k <= great; k++) {
+				T current = array[k];
+				if (comparator.compare(current, pivot1) < 0) {
+					array[k] = array[less];
+					array[less++] = current;
+				} else if (comparator.compare(current, pivot2) > 0) {
+					while (k < great
+							&& comparator.compare(array[great], pivot2) > 0)
+						great--;
+					array[k] = array[great];
+					array[great--] = current;
+					current = array[k];
+					if (comparator.compare(current, pivot1) < 0) {
+						array[k] = array[less];
+						array[less++] = current;
+					}
+				}
+			}
+			array[lo] = array[--less];
+			array[less] = pivot1;
+			array[hi - 1] = array[++great];
+			array[great] = pivot2;
+
+			quickSort(array, lo, less, depth, comparator);
+			// Between part holds only equals of a repeated pivot
+			if (comparator.compare(pivot1, pivot2) < 0)
+				quickSort(array, less + 1, great, depth, comparator);
+			lo = great + 1;
 		}
+		insertionSort(array, lo, hi, comparator);
 	}
 
 	/**
-	 * Cuts an array into two parts. Elements at the front less than the pivot
-	 * and elements at the end greater than the pivot. Ideally, each part is
-	 * 50/50 split. 10/90 split is bounded by O(nlog(n)). Worst case, the pivot
-	 * is at the end.
+	 * Sorts an array of int by counting one byte of each key per pass, least
+	 * significant byte first. Never compares elements, so sorting costs a few
+	 * passes over memory. Least elements are first.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
 	 * 
-	 * This implementation picks its pivot at random.
+	 * Passes: at most 4, skipping bytes shared by every key. O(n)
 	 * 
 	 * @param array
-	 *            target array being partitioned
-	 * @param first
-	 *            where first part starts
-	 * @param last
-	 *            where second part starts
-	 * @param <T>
-	 *            type of element
-	 * @return pivot index
+	 *            subject of radixSort
 	 */
-	private static <T extends Comparable<? super T>> int randomPartition(
-			T[] array, int first, int last) {
-		swap(array, first, new Random().nextInt(last));
-		return partition(array, first, last, array[first]);
+	public static void radixSort(int[] array) {
+		int n = array.length;
+		if (n < 2)
+			return;
+		int[] src = array, dst = new int[n];
+		int[] count = new int[RADIX + 1];
+		for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+			java.util.Arrays.fill(count, 0);
+			for (int key : src)
+				count[digit(key, shift) + 1]++;
+			if (count[digit(src[0], shift) + 1] == n)
+				continue;
+			for (int i = 0; i < RADIX; i++)
+				count[i + 1] += count[i];
+			for (int key : src)
+				dst[count[digit(key, shift)]++] = key;
+			int[] temp = src;
+			src = dst;
+			dst = temp;
+		}
+		if (src != array)
+			System.arraycopy(src, 0, array, 0, n);
+	}
+
+	/**
+	 * Sorts an array of long by counting one byte of each key per pass, least
+	 * significant byte first. Least elements are first.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * Passes: at most 8, skipping bytes shared by every key. O(n)
+	 * 
+	 * @param array
+	 *            subject of radixSort
+	 */
+	public static void radixSort(long[] array) {
+		int n = array.length;
+		if (n < 2)
+			return;
+		long[] src = array, dst = new long[n];
+		int[] count = new int[RADIX + 1];
+		for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+			java.util.Arrays.fill(count, 0);
+			for (long key : src)
+				count[digit(key, shift) + 1]++;
+			if (count[digit(src[0], shift) + 1] == n)
+				continue;
+			for (int i = 0; i < RADIX; i++)
+				count[i + 1] += count[i];
+			for (long key : src)
+				dst[count[digit(key, shift)]++] = key;
+			long[] temp = src;
+			src = dst;
+			dst = temp;
+		}
+		if (src != array)
+			System.arraycopy(src, 0, array, 0, n);
 	}
 
 	/**
@@ -440,6 +1411,54 @@ public class Arrays {
 			swap(array, i, array.length - i - 1);
 	}
 
+	/**
+	 * Reverses elements within a range of an array.
+	 * 
+	 * @param array
+	 *            target array with elements
+	 * @param lo
+	 *            first index reversed
+	 * @param hi
+	 *            index after last reversed
+	 */
+	private static <T> void reverse(T[] array, int lo, int hi) {
+		for (hi--; lo < hi; lo++, hi--) {
+			T temp = array[lo];
+			array[lo] = array[hi];
+			array[hi] = temp;
+		}
+	}
+
+	/**
+	 * Finds where key would be inserted into a sorted range.
+	 * 
+	 * @param array
+	 *            holds sorted range
+	 * @param lo
+	 *            first index searched
+	 * @param hi
+	 *            index after last searched
+	 * @param key
+	 *            element being placed
+	 * @param after
+	 *            if true, key goes after equal elements; if false, before
+	 * @param comparator
+	 *            ordering being used
+	 * @return first index whose element belongs after key
+	 */
+	private static <T> int search(T[] array, int lo, int hi, T key,
+			boolean after, Comparator<? super T> comparator) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = comparator.compare(array[mid], key);
+			if (cmp < 0 || (after && cmp == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
 	/**
 	 * Generally slower than any other sort algorithm. Its main advantage is
 	 * guaranteed O(n) swaps. If swaps are expensive, selection sort is ideal.
@@ -470,6 +1489,88 @@ public class Arrays {
 		}
 	}
 
+	/**
+	 * Moves an element of a heap stored from base down past greater children.
+	 * 
+	 * @param array
+	 *            holds heap
+	 * @param base
+	 *            index of heap root
+	 * @param index
+	 *            heap position of element moved
+	 * @param size
+	 *            number of elements in heap
+	 * @param comparator
+	 *            ordering being used
+	 */
+	private static <T> void siftDown(T[] array, int base, int index, int size,
+			Comparator<? super T> comparator) {
+		T current = array[base + index];
+		int child;
+		while ((child = 2 * index + 1) < size) {
+			if (child + 1 < size
+					&& comparator.compare(array[base + child],
+							array[base + child + 1]) < 0)
+				child++;
+			if (comparator.compare(current, array[base + child]) >= 0)
+				break;
+			array[base + index] = array[base + child];
+			index = child;
+		}
+		array[base + index] = current;
+	}
+
+	/**
+	 * Sorts an array by an int key extracted once from each element, using
+	 * radix passes over the keys. Elements move with their keys and are never
+	 * compared. Least keys are first.
+	 * 
+	 * Stability: Equal keys keep their elements in order.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * Passes: at most 4, skipping bytes shared by every key. O(n)
+	 * 
+	 * @param array
+	 *            subject of sortByIntKey
+	 * @param key
+	 *            extracts the sort key of an element
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void sortByIntKey(T[] array, ToIntFunction<? super T> key) {
+		int n = array.length;
+		if (n < 2)
+			return;
+		int[] keys = new int[n], keyBuffer = new int[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = key.applyAsInt(array[i]);
+		T[] src = array, dst = array.clone();
+		int[] count = new int[RADIX + 1];
+		for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+			java.util.Arrays.fill(count, 0);
+			for (int k : keys)
+				count[digit(k, shift) + 1]++;
+			if (count[digit(keys[0], shift) + 1] == n)
+				continue;
+			for (int i = 0; i < RADIX; i++)
+				count[i + 1] += count[i];
+			for (int i = 0; i < n; i++) {
+				int position = count[digit(keys[i], shift)]++;
+				keyBuffer[position] = keys[i];
+				dst[position] = src[i];
+			}
+			int[] tempKeys = keys;
+			keys = keyBuffer;
+			keyBuffer = tempKeys;
+			T[] temp = src;
+			src = dst;
+			dst = temp;
+		}
+		if (src != array)
+			System.arraycopy(src, 0, array, 0, n);
+	}
+
 	/**
 	 * Swaps elements at two given indices within an array. Last index must be
 	 * greater than first index.
@@ -490,4 +1591,46 @@ public class Arrays {
 		array[secondIndex] = temp;
 	}
 
+	/**
+	 * Sorts an array by finding runs already in order and merging them. Its
+	 * main advantages are stability and speed on partly sorted arrays, such as
+	 * appended data with a few stragglers. Least elements are first.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n), less on partly sorted arrays
+	 * 
+	 * Comparisons and Swaps: O(n) on sorted or reversed arrays and close to it
+	 * on nearly sorted arrays. Therefore adaptive. O(nlog(n))
+	 * 
+	 * @param array
+	 *            subject of timSort
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T extends Comparable<? super T>> void timSort(T[] array) {
+		timSort(array, Comparator.<T> naturalOrder());
+	}
+
+	/**
+	 * Sorts an array by finding runs already in order and merging them,
+	 * ordering elements with a given comparator.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n), less on partly sorted arrays
+	 * 
+	 * @param array
+	 *            subject of timSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 * @throws IllegalArgumentException
+	 *             if comparator is found to be inconsistent
+	 */
+	public static <T> void timSort(T[] array, Comparator<? super T> comparator) {
+		TimSort.sort(array, 0, array.length, comparator);
+	}
+
 }
@@ -0,0 +1,769 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Ordered multiset backed by a B+ tree. Each node stores many keys in one
+ * array, so a lookup touches O(log n / log fanout) nodes rather than O(log n)
+ * scattered ones. Equal elements share one key which counts them.
+ *
+ * All keys live in leaves, which are linked in both directions. Iteration and
+ * the navigation methods walk along leaves without returning to the root.
+ * Internal nodes hold separators: every key in a child is at least the
+ * separator before it and less than the separator after it.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class BTreeMultiset<E extends Comparable<? super E>> extends
+		AbstractMultiset<E> implements Navigable<E> {
+
+	/**
+	 * Internal node with separators and children.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Internal<E> extends Node<E> {
+
+		/** Subtrees, one more than separators */
+		private Node<E>[] children;
+
+		@SuppressWarnings("unchecked")
+		private Internal(int fanout) {
+			super(fanout);
+			children = (Node<E>[]) new Node<?>[fanout + 1];
+			// suppression safe since only nodes of type E will be inserted
+		}
+
+	}
+
+	/**
+	 * Leaf node with keys and their counts.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Leaf<E> extends Node<E> {
+
+		/** Number of elements equal to each key */
+		private int[] counts;
+		/** Neighboring leaves */
+		private Leaf<E> next, prev;
+
+		private Leaf(int fanout) {
+			super(fanout + 1);
+			counts = new int[fanout + 1];
+		}
+
+	}
+
+	/**
+	 * Iterator over keys of BTreeMultiset in either direction. Walks the leaf
+	 * links.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class LeafIterator implements Iterator<Multiset.Entry<E>> {
+
+		/** Leaf holding next key */
+		private Leaf<E> leaf;
+		/** Does iterator walk toward greater keys */
+		private boolean movesForward;
+		/** Position of next key within leaf */
+		private int pointer;
+
+		/**
+		 * Creates a LeafIterator given a direction.
+		 *
+		 * @param forward
+		 *            if true, iterator starts at lowest and goes to highest ;
+		 *            if false, iterator starts at highest and goes to lowest
+		 */
+		private LeafIterator(boolean forward) {
+			movesForward = forward;
+			leaf = forward ? head : tail;
+			pointer = forward ? 0 : leaf.length - 1;
+			if (leaf.length == 0)
+				leaf = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return leaf != null;
+		}
+
+		@Override
+		public Multiset.Entry<E> next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			Multiset.Entry<E> result = new ImmutableEntry<E>(
+					leaf.keys[pointer], leaf.counts[pointer]);
+			if (movesForward && ++pointer == leaf.length) {
+				leaf = leaf.next;
+				pointer = 0;
+			} else if (!movesForward && --pointer < 0) {
+				leaf = leaf.prev;
+				if (leaf != null)
+					pointer = leaf.length - 1;
+			}
+			return result;
+		}
+
+	}
+
+	/**
+	 * Node with sorted keys. One slot beyond capacity lets a node overflow
+	 * before it is split.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private abstract static class Node<E> {
+
+		/** Keys, or separators in internal nodes */
+		E[] keys;
+		/** Number of keys in use */
+		int length;
+
+		@SuppressWarnings("unchecked")
+		private Node(int capacity) {
+			keys = (E[]) new Comparable<?>[capacity];
+			// suppression safe since only elements of type E will be inserted
+		}
+
+	}
+
+	/**
+	 * Iterator returning each key once per occurrence.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class OccurrenceIterator implements Iterator<E> {
+
+		/** Entry whose element is returned next */
+		private Multiset.Entry<E> entry;
+		/** Distinct keys */
+		private LeafIterator entries;
+		/** Occurrences of entry not yet returned */
+		private int remaining;
+
+		private OccurrenceIterator(boolean forward) {
+			entries = new LeafIterator(forward);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0 || entries.hasNext();
+		}
+
+		@Override
+		public E next() {
+			if (remaining < 1) {
+				entry = entries.next();
+				remaining = entry.getCount();
+			}
+			remaining--;
+			return entry.getElement();
+		}
+
+	}
+
+	/** Children per internal node and keys per leaf used by default */
+	public static final int DEFAULT_FANOUT = 64;
+	/** Fewest children per internal node allowed */
+	private static final int MINIMUM_FANOUT = 4;
+
+	/** Used to compare elements */
+	private final Comparator<? super E> comparator;
+	/** Number of distinct keys */
+	private int distinct;
+	/** Most children per internal node and keys per leaf */
+	private final int fanout;
+	/** Least and greatest leaves */
+	private Leaf<E> head, tail;
+	/** Reference to beginning of tree */
+	private Node<E> root;
+	/** Number of elements */
+	private int size;
+
+	/**
+	 * Constructs an empty BTreeMultiset using natural ordering comparator and
+	 * default fanout.
+	 */
+	public BTreeMultiset() {
+		this(null, DEFAULT_FANOUT);
+	}
+
+	/**
+	 * Constructs an empty BTreeMultiset using given comparator and default
+	 * fanout.
+	 *
+	 * @param comp
+	 *            ordering being used
+	 */
+	public BTreeMultiset(Comparator<? super E> comp) {
+		this(comp, DEFAULT_FANOUT);
+	}
+
+	/**
+	 * Constructs an empty BTreeMultiset using given comparator and fanout.
+	 *
+	 * @param comp
+	 *            ordering being used
+	 * @param fanout
+	 *            most children per internal node and keys per leaf
+	 * @throws IllegalArgumentException
+	 *             if fanout is less than four
+	 */
+	public BTreeMultiset(Comparator<? super E> comp, int fanout) {
+		if (fanout < MINIMUM_FANOUT)
+			throw new IllegalArgumentException("Fanout less than four.");
+		this.comparator = comp;
+		this.fanout = fanout;
+		clear();
+	}
+
+	@Override
+	public boolean add(E obj) {
+		return add(obj, 1);
+	}
+
+	/**
+	 * This implementation descends once from root.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
+
+		Node<E> sibling = insert(root, obj, occurrences);
+		if (sibling != null) {
+			// Root split, so tree grows one level
+			Internal<E> grown = new Internal<E>(fanout);
+			grown.keys[0] = first(sibling);
+			grown.children[0] = root;
+			grown.children[1] = sibling;
+			grown.length = 1;
+			root = grown;
+		}
+		size += occurrences;
+		return true;
+	}
+
+	/**
+	 * Returns position of the first key not less than given element.
+	 *
+	 * @param node
+	 *            node being searched
+	 * @param e
+	 *            element for comparison
+	 * @param strict
+	 *            if true, returns position of first key greater than e instead
+	 * @return position between 0 and node.length inclusive
+	 */
+	private int bound(Node<E> node, E e, boolean strict) {
+		int lo = 0, hi = node.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int comparison = compare(comparator(), node.keys[mid], e);
+			if (comparison < 0 || (strict && comparison == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	@Override
+	public E ceiling(E e) {
+		Leaf<E> leaf = leafFor(e);
+		int index = bound(leaf, e, false);
+		return index < leaf.length ? leaf.keys[index] : first(leaf.next);
+	}
+
+	@Override
+	public void clear() {
+		head = tail = new Leaf<E>(fanout);
+		root = head;
+		distinct = 0;
+		size = 0;
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return count(obj) > 0;
+	}
+
+	@Override
+	public int count(Object obj) {
+		try {
+			@SuppressWarnings("unchecked")
+			E target = (E) obj;
+			// suppressed warning safe within try/catch block
+			Leaf<E> leaf = leafFor(target);
+			int index = bound(leaf, target, false);
+			if (index < leaf.length
+					&& compare(comparator(), leaf.keys[index], target) == 0)
+				return leaf.counts[index];
+			return 0;
+		} catch (ClassCastException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new OccurrenceIterator(false);
+	}
+
+	@Override
+	protected int distinctSize() {
+		return distinct;
+	}
+
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		return new LeafIterator(true);
+	}
+
+	/**
+	 * Returns least key of a subtree.
+	 *
+	 * @param node
+	 *            root of subtree, possibly null
+	 * @return least key or null
+	 */
+	private static <E> E first(Node<E> node) {
+		while (node instanceof Internal)
+			node = ((Internal<E>) node).children[0];
+		return node == null || node.length == 0 ? null : node.keys[0];
+	}
+
+	/**
+	 * Restores minimum occupancy of an underfull child by borrowing a key
+	 * from a sibling, or by merging with a sibling when neither can spare one.
+	 *
+	 * @param parent
+	 *            parent of underfull child
+	 * @param index
+	 *            position of underfull child
+	 */
+	private void fix(Internal<E> parent, int index) {
+		Node<E> child = parent.children[index];
+		Node<E> left = index > 0 ? parent.children[index - 1] : null;
+		Node<E> right = index < parent.length ? parent.children[index + 1]
+				: null;
+
+		if (left != null && left.length > minimum(left))
+			rotateRight(parent, index - 1);
+		else if (right != null && right.length > minimum(right))
+			rotateLeft(parent, index);
+		else if (left != null)
+			merge(parent, index - 1);
+		else
+			merge(parent, index);
+	}
+
+	@Override
+	public E floor(E e) {
+		Leaf<E> leaf = leafFor(e);
+		int index = bound(leaf, e, true) - 1;
+		return index >= 0 ? leaf.keys[index] : last(leaf.prev);
+	}
+
+	@Override
+	public E higher(E e) {
+		Leaf<E> leaf = leafFor(e);
+		int index = bound(leaf, e, true);
+		return index < leaf.length ? leaf.keys[index] : first(leaf.next);
+	}
+
+	/**
+	 * Inserts occurrences into a subtree, splitting any node which overflows.
+	 *
+	 * @param node
+	 *            root of subtree
+	 * @param obj
+	 *            object being inserted
+	 * @param occurrences
+	 *            positive number of occurrences
+	 * @return new right sibling of node if node split, otherwise null
+	 */
+	private Node<E> insert(Node<E> node, E obj, int occurrences) {
+		if (node instanceof Leaf) {
+			Leaf<E> leaf = (Leaf<E>) node;
+			int index = bound(leaf, obj, false);
+			if (index < leaf.length
+					&& compare(comparator(), leaf.keys[index], obj) == 0) {
+				leaf.counts[index] += occurrences;
+				return null;
+			}
+
+			shift(leaf.keys, index, leaf.length, 1);
+			System.arraycopy(leaf.counts, index, leaf.counts, index + 1,
+					leaf.length - index);
+			leaf.keys[index] = obj;
+			leaf.counts[index] = occurrences;
+			leaf.length++;
+			distinct++;
+			return leaf.length > fanout ? splitLeaf(leaf) : null;
+		}
+
+		Internal<E> internal = (Internal<E>) node;
+		int index = bound(internal, obj, true);
+		Node<E> sibling = insert(internal.children[index], obj, occurrences);
+		if (sibling == null)
+			return null;
+
+		// Link new sibling right of child
+		shift(internal.keys, index, internal.length, 1);
+		System.arraycopy(internal.children, index + 1, internal.children,
+				index + 2, internal.length - index);
+		internal.keys[index] = first(sibling);
+		internal.children[index + 1] = sibling;
+		internal.length++;
+		return internal.length >= fanout ? splitInternal(internal) : null;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new OccurrenceIterator(true);
+	}
+
+	/**
+	 * Returns greatest key of a leaf.
+	 *
+	 * @param leaf
+	 *            leaf or null
+	 * @return greatest key or null
+	 */
+	private static <E> E last(Leaf<E> leaf) {
+		return leaf == null || leaf.length == 0 ? null
+				: leaf.keys[leaf.length - 1];
+	}
+
+	/**
+	 * Returns leaf whose range covers given element.
+	 *
+	 * @param e
+	 *            element for comparison
+	 * @return leaf covering e
+	 */
+	private Leaf<E> leafFor(E e) {
+		Node<E> node = root;
+		while (node instanceof Internal)
+			node = ((Internal<E>) node).children[bound(node, e, true)];
+		return (Leaf<E>) node;
+	}
+
+	@Override
+	public E lower(E e) {
+		Leaf<E> leaf = leafFor(e);
+		int index = bound(leaf, e, false) - 1;
+		return index >= 0 ? leaf.keys[index] : last(leaf.prev);
+	}
+
+	@Override
+	public E maximum() {
+		return last(tail);
+	}
+
+	/**
+	 * Merges child at index with its right sibling, removing the separator
+	 * between them from parent.
+	 *
+	 * @param parent
+	 *            parent of merged children
+	 * @param index
+	 *            position of left child
+	 */
+	private void merge(Internal<E> parent, int index) {
+		Node<E> left = parent.children[index];
+		Node<E> right = parent.children[index + 1];
+
+		if (left instanceof Leaf) {
+			Leaf<E> leftLeaf = (Leaf<E>) left, rightLeaf = (Leaf<E>) right;
+			System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.length,
+					rightLeaf.length);
+			System.arraycopy(rightLeaf.counts, 0, leftLeaf.counts,
+					leftLeaf.length, rightLeaf.length);
+			leftLeaf.length += rightLeaf.length;
+			leftLeaf.next = rightLeaf.next;
+			if (rightLeaf.next != null)
+				rightLeaf.next.prev = leftLeaf;
+			else
+				tail = leftLeaf;
+		} else {
+			Internal<E> leftInternal = (Internal<E>) left;
+			Internal<E> rightInternal = (Internal<E>) right;
+			// Separator comes down between the two key runs
+			leftInternal.keys[leftInternal.length] = parent.keys[index];
+			System.arraycopy(rightInternal.keys, 0, leftInternal.keys,
+					leftInternal.length + 1, rightInternal.length);
+			System.arraycopy(rightInternal.children, 0,
+					leftInternal.children, leftInternal.length + 1,
+					rightInternal.length + 1);
+			leftInternal.length += rightInternal.length + 1;
+		}
+
+		shift(parent.keys, index + 1, parent.length, -1);
+		System.arraycopy(parent.children, index + 2, parent.children,
+				index + 1, parent.length - index - 1);
+		parent.length--;
+		parent.children[parent.length + 1] = null;
+		parent.keys[parent.length] = null;
+	}
+
+	/**
+	 * Returns least number of keys a non-root node may hold.
+	 *
+	 * @param node
+	 *            non-root node
+	 * @return least number of keys
+	 */
+	private int minimum(Node<E> node) {
+		return node instanceof Leaf ? fanout / 2 : (fanout + 1) / 2 - 1;
+	}
+
+	@Override
+	public E minimum() {
+		return first(head);
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return remove(obj, 1);
+	}
+
+	/**
+	 * This implementation descends once from root.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
+		try {
+			@SuppressWarnings("unchecked")
+			E target = (E) obj;
+			// suppressed warning safe within try/catch block
+			int removed = remove(root, target, occurrences);
+			if (root instanceof Internal && root.length == 0)
+				// Root has a single child, so tree shrinks one level
+				root = ((Internal<E>) root).children[0];
+			size -= removed;
+			return removed > 0;
+		} catch (ClassCastException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Removes occurrences from a subtree, fixing any child left underfull.
+	 *
+	 * @param node
+	 *            root of subtree
+	 * @param obj
+	 *            object being removed
+	 * @param occurrences
+	 *            positive number of occurrences
+	 * @return number of occurrences removed
+	 */
+	private int remove(Node<E> node, E obj, int occurrences) {
+		if (node instanceof Leaf) {
+			Leaf<E> leaf = (Leaf<E>) node;
+			int index = bound(leaf, obj, false);
+			if (index == leaf.length
+					|| compare(comparator(), leaf.keys[index], obj) != 0)
+				return 0;
+			if (leaf.counts[index] > occurrences) {
+				leaf.counts[index] -= occurrences;
+				return occurrences;
+			}
+
+			int removed = leaf.counts[index];
+			shift(leaf.keys, index + 1, leaf.length, -1);
+			System.arraycopy(leaf.counts, index + 1, leaf.counts, index,
+					leaf.length - index - 1);
+			leaf.keys[--leaf.length] = null;
+			distinct--;
+			return removed;
+		}
+
+		Internal<E> internal = (Internal<E>) node;
+		int index = bound(internal, obj, true);
+		Node<E> child = internal.children[index];
+		int removed = remove(child, obj, occurrences);
+		if (child.length < minimum(child))
+			fix(internal, index);
+		return removed;
+	}
+
+	/**
+	 * Moves one key from the child right of a separator into the child left of
+	 * it through parent.
+	 *
+	 * @param parent
+	 *            parent of both children
+	 * @param index
+	 *            position of separator and left child
+	 */
+	private void rotateLeft(Internal<E> parent, int index) {
+		Node<E> left = parent.children[index];
+		Node<E> right = parent.children[index + 1];
+
+		if (left instanceof Leaf) {
+			Leaf<E> leftLeaf = (Leaf<E>) left, rightLeaf = (Leaf<E>) right;
+			leftLeaf.keys[leftLeaf.length] = rightLeaf.keys[0];
+			leftLeaf.counts[leftLeaf.length++] = rightLeaf.counts[0];
+			shift(rightLeaf.keys, 1, rightLeaf.length, -1);
+			System.arraycopy(rightLeaf.counts, 1, rightLeaf.counts, 0,
+					rightLeaf.length - 1);
+			rightLeaf.keys[--rightLeaf.length] = null;
+			parent.keys[index] = rightLeaf.keys[0];
+		} else {
+			Internal<E> leftInternal = (Internal<E>) left;
+			Internal<E> rightInternal = (Internal<E>) right;
+			leftInternal.keys[leftInternal.length] = parent.keys[index];
+			leftInternal.children[++leftInternal.length] = rightInternal.children[0];
+			parent.keys[index] = rightInternal.keys[0];
+			shift(rightInternal.keys, 1, rightInternal.length, -1);
+			System.arraycopy(rightInternal.children, 1,
+					rightInternal.children, 0, rightInternal.length);
+			rightInternal.children[rightInternal.length] = null;
+			rightInternal.keys[--rightInternal.length] = null;
+		}
+	}
+
+	/**
+	 * Mirrors rotateLeft. Moves one key from the child left of a separator
+	 * into the child right of it through parent.
+	 *
+	 * @param parent
+	 *            parent of both children
+	 * @param index
+	 *            position of separator and left child
+	 */
+	private void rotateRight(Internal<E> parent, int index) {
+		Node<E> left = parent.children[index];
+		Node<E> right = parent.children[index + 1];
+
+		if (left instanceof Leaf) {
+			Leaf<E> leftLeaf = (Leaf<E>) left, rightLeaf = (Leaf<E>) right;
+			shift(rightLeaf.keys, 0, rightLeaf.length, 1);
+			System.arraycopy(rightLeaf.counts, 0, rightLeaf.counts, 1,
+					rightLeaf.length);
+			leftLeaf.length--;
+			rightLeaf.keys[0] = leftLeaf.keys[leftLeaf.length];
+			rightLeaf.counts[0] = leftLeaf.counts[leftLeaf.length];
+			rightLeaf.length++;
+			leftLeaf.keys[leftLeaf.length] = null;
+			parent.keys[index] = rightLeaf.keys[0];
+		} else {
+			Internal<E> leftInternal = (Internal<E>) left;
+			Internal<E> rightInternal = (Internal<E>) right;
+			shift(rightInternal.keys, 0, rightInternal.length, 1);
+			System.arraycopy(rightInternal.children, 0,
+					rightInternal.children, 1, rightInternal.length + 1);
+			rightInternal.keys[0] = parent.keys[index];
+			rightInternal.children[0] = leftInternal.children[leftInternal.length];
+			rightInternal.length++;
+			parent.keys[index] = leftInternal.keys[leftInternal.length - 1];
+			leftInternal.children[leftInternal.length] = null;
+			leftInternal.keys[--leftInternal.length] = null;
+		}
+	}
+
+	/**
+	 * Shifts a run of array elements by a distance.
+	 *
+	 * @param array
+	 *            array holding run
+	 * @param from
+	 *            first position of run
+	 * @param to
+	 *            one past last position of run
+	 * @param distance
+	 *            positions moved, negative toward the start
+	 */
+	private static void shift(Object[] array, int from, int to, int distance) {
+		System.arraycopy(array, from, array, from + distance, to - from);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Moves upper half of an overflowing internal node into a new sibling.
+	 * The middle separator is dropped here and reappears as the least key of
+	 * the sibling's subtree.
+	 *
+	 * @param internal
+	 *            node with fanout separators
+	 * @return new right sibling
+	 */
+	private Internal<E> splitInternal(Internal<E> internal) {
+		Internal<E> sibling = new Internal<E>(fanout);
+		int mid = internal.length / 2;
+		sibling.length = internal.length - mid - 1;
+		System.arraycopy(internal.keys, mid + 1, sibling.keys, 0,
+				sibling.length);
+		System.arraycopy(internal.children, mid + 1, sibling.children, 0,
+				sibling.length + 1);
+		java.util.Arrays.fill(internal.keys, mid, internal.length, null);
+		java.util.Arrays.fill(internal.children, mid + 1,
+				internal.length + 1, null);
+		internal.length = mid;
+		return sibling;
+	}
+
+	/**
+	 * Moves upper half of an overflowing leaf into a new linked sibling.
+	 *
+	 * @param leaf
+	 *            leaf with fanout + 1 keys
+	 * @return new right sibling
+	 */
+	private Leaf<E> splitLeaf(Leaf<E> leaf) {
+		Leaf<E> sibling = new Leaf<E>(fanout);
+		int mid = leaf.length / 2;
+		sibling.length = leaf.length - mid;
+		System.arraycopy(leaf.keys, mid, sibling.keys, 0, sibling.length);
+		System.arraycopy(leaf.counts, mid, sibling.counts, 0, sibling.length);
+		java.util.Arrays.fill(leaf.keys, mid, leaf.length, null);
+		leaf.length = mid;
+
+		sibling.prev = leaf;
+		sibling.next = leaf.next;
+		if (leaf.next != null)
+			leaf.next.prev = sibling;
+		else
+			tail = sibling;
+		leaf.next = sibling;
+		return sibling;
+	}
+
+}
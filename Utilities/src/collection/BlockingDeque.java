@@ -0,0 +1,145 @@
+/**
+ * The collection package offers an implementation of a collections framework.
+ */
+package collection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds waiting for space or elements to a bounded deque.
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ *
+ * @author Jacob Malter
+ */
+public interface BlockingDeque<E> extends Deque<E> {
+
+	/**
+	 * Moves every element into coll.
+	 *
+	 * @param coll
+	 *            collection receiving elements
+	 * @return number of elements moved
+	 */
+	default int drainTo(Collection<? super E> coll) {
+		return drainTo(coll, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Moves up to max elements from head into coll, in order.
+	 *
+	 * @param coll
+	 *            collection receiving elements
+	 * @param max
+	 *            most elements moved
+	 * @return number of elements moved
+	 * @throws IllegalArgumentException
+	 *             if coll is this deque or max is negative
+	 */
+	int drainTo(Collection<? super E> coll, int max);
+
+	/**
+	 * Inserts e at head, waiting up to timeout for space.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @param timeout
+	 *            longest wait
+	 * @param unit
+	 *            unit of timeout
+	 * @return true if inserted, false if time ran out
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	boolean offerFirst(E e, long timeout, TimeUnit unit)
+			throws InterruptedException;
+
+	/**
+	 * Inserts e at tail, waiting up to timeout for space.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @param timeout
+	 *            longest wait
+	 * @param unit
+	 *            unit of timeout
+	 * @return true if inserted, false if time ran out
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	boolean offerLast(E e, long timeout, TimeUnit unit)
+			throws InterruptedException;
+
+	/**
+	 * Returns and removes head, waiting up to timeout for an element.
+	 *
+	 * @param timeout
+	 *            longest wait
+	 * @param unit
+	 *            unit of timeout
+	 * @return head element, null if time ran out
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	E pollFirst(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Returns and removes tail, waiting up to timeout for an element.
+	 *
+	 * @param timeout
+	 *            longest wait
+	 * @param unit
+	 *            unit of timeout
+	 * @return tail element, null if time ran out
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	E pollLast(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Inserts e at head, waiting for space.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void putFirst(E e) throws InterruptedException;
+
+	/**
+	 * Inserts e at tail, waiting for space.
+	 *
+	 * @param e
+	 *            element inserted
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void putLast(E e) throws InterruptedException;
+
+	/**
+	 * Returns number of elements which could be inserted without waiting.
+	 *
+	 * @return capacity minus size
+	 */
+	int remainingCapacity();
+
+	/**
+	 * Returns and removes head, waiting for an element.
+	 *
+	 * @return head element
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	E takeFirst() throws InterruptedException;
+
+	/**
+	 * Returns and removes tail, waiting for an element.
+	 *
+	 * @return tail element
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	E takeLast() throws InterruptedException;
+
+}
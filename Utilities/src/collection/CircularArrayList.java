@@ -1,8 +1,9 @@
 package collection;
 
-import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 /**
  * Container satisfying list and dequeue interfaces on top of a circular array.
@@ -15,35 +16,18 @@ import java.util.NoSuchElementException;
 public class CircularArrayList<E> extends AbstractDequeList<E> {
 
 	/**
-	 * List iterator.
+	 * List iterator reading the circular array directly. Fails fast if the list
+	 * is structurally changed other than through this iterator.
 	 * 
 	 * @author Jacob Malter
 	 */
 	private class LstIterator implements ListIterator<E> {
 
-		/** Reference to elements in collection */
-		private E[] elements;
+		/** modCount this iterator agrees with */
+		private int expectedModCount;
 		/** Reference to next element, reference to last element returned */
 		private int pointer, lastReturned;
 
-		/**
-		 * Constructs a new LstIterator.
-		 */
-		private LstIterator() {
-			this(0, true);
-		}
-
-		/**
-		 * Constructs a new LstIterator given direction.
-		 * 
-		 * @param forward
-		 *            true if iterator elements from 0 to size(), otherwise
-		 *            iterator elements reversed
-		 */
-		private LstIterator(boolean forward) {
-			this(0, forward);
-		}
-
 		/**
 		 * Constructs a new LstIterator given index.
 		 * 
@@ -51,48 +35,36 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 		 *            starting position within list
 		 */
 		private LstIterator(int index) {
-			this(index, true);
-		}
-
-		/**
-		 * Constructs a new LstIterator given index and direction.
-		 * 
-		 * @param index
-		 *            starting position within list
-		 * @param forward
-		 *            true if iterator elements from 0 to size(), otherwise
-		 *            iterator elements reversed
-		 */
-		private LstIterator(int index, boolean forward) {
-			try {
-				rangeCheck(index);
-			} catch (ArrayIndexOutOfBoundsException e) {
+			if (0 > index || index > size)
 				throw new IndexOutOfBoundsException("Iterator index invalid.");
-			}
 
+			this.expectedModCount = modCount;
 			this.lastReturned = -1;
 			this.pointer = index;
-			this.elements = (E[]) Arrays.copyOf(data, data.length);
-			if (!forward)
-				collection.Arrays.reverse(elements);
-			// suppressed warning safe since data is type E
 		}
 
 		@Override
 		public void add(E e) {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			elements = Arrays.copyOf(elements, elements.length + 1);
-			for (int i = elements.length; i >= pointer;)
-				elements[i] = elements[--i];
-			elements[pointer++ - 1] = e;
+			CircularArrayList.this.add(pointer++, e);
+			expectedModCount = modCount;
 			lastReturned = -1;
 		}
 
+		/**
+		 * Throws an exception if the list changed behind this iterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
 		@Override
 		public boolean hasNext() {
-			return pointer < data.length;
+			return pointer < size;
 		}
 
 		@Override
@@ -102,12 +74,13 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 
 		@Override
 		public E next() {
+			checkForComodification();
 			if (!hasNext())
 				throw new NoSuchElementException(
 						"No more elements remaining in iterator");
 
 			lastReturned = pointer;
-			return elements[pointer++];
+			return data[translate(pointer++)];
 		}
 
 		@Override
@@ -117,12 +90,13 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 
 		@Override
 		public E previous() {
+			checkForComodification();
 			if (!hasPrevious())
 				throw new NoSuchElementException(
 						"No more elements remaining in iterator");
 
 			lastReturned = --pointer;
-			return elements[pointer];
+			return data[translate(pointer)];
 		}
 
 		@Override
@@ -134,10 +108,12 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 		public void remove() {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			System.arraycopy(elements, lastReturned + 1, elements,
-					lastReturned, elements.length - lastReturned + 1);
-			pointer--;
+			CircularArrayList.this.remove(lastReturned);
+			if (lastReturned < pointer)
+				pointer--;
+			expectedModCount = modCount;
 			lastReturned = -1;
 		}
 
@@ -145,8 +121,9 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 		public void set(E e) {
 			if (lastReturned < 0)
 				throw new IllegalStateException("next nor previous called");
+			checkForComodification();
 
-			elements[lastReturned] = e;
+			data[translate(lastReturned)] = e;
 			lastReturned = -1;
 		}
 
@@ -155,125 +132,92 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 	/** memory for data */
 	private E[] data;
 	/**
-	 * index of first element, number of elements, index of last element
+	 * index of first element, number of elements
 	 */
-	private int head, size, tail;
+	private int head, size;
 
 	/**
 	 * Constructs a circular array with default capacity.
 	 */
 	@SuppressWarnings("unchecked")
 	public CircularArrayList() {
-		data = (E[]) collection.Arrays.DEFAULT_ARRAY;
+		data = (E[]) new Object[collection.Arrays.DEFAULT_CAPACITY];
 		// suppression safe since only elements of type E will be inserted
 	}
 
 	@Override
 	public void add(int index, E obj) {
+		if (0 > index || index > size)
+			throw new IndexOutOfBoundsException();
 		ensureCapacity(size() + 1);
-		rangeCheck(index);
 
-		if (index == 0) {
-			// First element
-			head = head <= 0 ? data.length - 1 : head - 1;
-			data[head] = obj;
-			size++;
-		} else if (index >= size()) {
-			// Last element
-			data[tail] = obj;
-			tail = tail >= data.length - 1 ? 0 : tail + 1;
-			size++;
-		} else {
-			// Add in between elements
-			int newIndex = translate(index);
-			if (newIndex > (head + tail) / 2)
-				rotateRightAfterIndex(newIndex);
-			else
-				rotateLeftBeforeIndex(newIndex);
-			data[newIndex] = obj;
-		}
+		if (index < size - index)
+			rotateLeftBeforeIndex(index);
+		else
+			rotateRightAfterIndex(index);
+		data[translate(index)] = obj;
+		size++;
+		modCount++;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public void clear() {
-		data = (E[]) collection.Arrays.DEFAULT_ARRAY;
+		data = (E[]) new Object[collection.Arrays.DEFAULT_CAPACITY];
 		// suppression safe since only elements of type E will be inserted
 		head = 0;
 		size = 0;
-		tail = 0;
-	}
-
-	/**
-	 * This implementation ignores changes to underlying CircularArray.
-	 */
-	@Override
-	public Iterator<E> descendingIterator() {
-		return new LstIterator(false);
+		modCount++;
 	}
 
 	/**
-	 * Creates room for new elements.
+	 * Creates room for new elements. Unwraps elements so head returns to 0.
 	 */
+	@SuppressWarnings("unchecked")
 	private void ensureCapacity(int minCapacity) {
 		int oldCapacity = data.length;
 		if (minCapacity >= oldCapacity) {
-			int newCapacity = oldCapacity * 2 + 1;
-			data = Arrays.copyOf(data, newCapacity);
+			E[] newData = (E[]) new Object[oldCapacity * 2 + 1];
+			// suppression safe since only elements of type E will be inserted
+			int first = Math.min(size, oldCapacity - head);
+			System.arraycopy(data, head, newData, 0, first);
+			System.arraycopy(data, 0, newData, first, size - first);
+			data = newData;
+			head = 0;
 		}
 	}
 
 	@Override
 	public E get(int index) {
 		rangeCheck(index);
-		return data[index];
+		return data[translate(index)];
 	}
 
 	@Override
 	public int indexOf(Object obj) {
-		if (head < tail) {
-			for (int i = head; i < tail; i++)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
-		} else if (head > tail) {
-			for (int i = head; i < data.length; i++)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
-			for (int i = 0; i < tail; i++)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
+		for (int i = 0; i < size; i++) {
+			E e = data[translate(i)];
+			if (e == null ? obj == null : e.equals(obj))
+				return i;
 		}
 		return -1;
 	}
 
-	/**
-	 * This implementation ignores changes to underlying CircularArray.
-	 */
 	@Override
 	public Iterator<E> iterator() {
-		return new LstIterator();
+		return new LstIterator(0);
 	}
 
 	@Override
 	public int lastIndexOf(Object obj) {
-		if (tail > head) {
-			for (int i = tail; i > head - 1; i--)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
-		} else if (tail < head) {
-			for (int i = tail; i > -1; i--)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
-			for (int i = data.length - 1; i > head - 1; i--)
-				if (data[i] == null ? obj == null : data[i].equals(obj))
-					return i;
+		for (int i = size - 1; i > -1; i--) {
+			E e = data[translate(i)];
+			if (e == null ? obj == null : e.equals(obj))
+				return i;
 		}
 		return -1;
 	}
 
-	/**
-	 * This implementation ignores changes to underlying CircularArray.
-	 */
 	@Override
 	public ListIterator<E> listIterator(int index) {
 		return new LstIterator(index);
@@ -284,11 +228,11 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 	 * 
 	 * @param index
 	 *            position on list
-	 * @throws ArrayIndexOutOfBoundsException
-	 *             if index is less than 0 or greater than capacity
+	 * @throws IndexOutOfBoundsException
+	 *             if index is less than 0 or at least size
 	 */
 	private void rangeCheck(int index) {
-		if (0 > index || index >= data.length)
+		if (0 > index || index >= size)
 			throw new IndexOutOfBoundsException();
 	}
 
@@ -296,105 +240,70 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 	public E remove(int index) {
 		rangeCheck(index);
 
-		int newIndex = translate(index);
-		E result = data[newIndex];
-		if (index == 0) {
-			// First element
-			data[head] = null;
-			head = head >= data.length - 1 ? 0 : head + 1;
-			size--;
-		} else if (index >= size()) {
-			// Last element
-			data[tail - 1] = null;
-			tail = tail <= 0 ? data.length - 1 : tail - 1;
-			size--;
-		} else {
-			if (newIndex > (head + tail) / 2)
-				rotateLeftAfterIndex(newIndex);
-			else
-				rotateRightBeforeIndex(newIndex);
-		}
+		E result = data[translate(index)];
+		if (index < size - index - 1)
+			rotateRightBeforeIndex(index);
+		else
+			rotateLeftAfterIndex(index);
+		size--;
+		modCount++;
 		return result;
 	}
 
 	/**
-	 * Shifts a range left by one after the given index. Moves the tail of the
-	 * range lower in index. Replaces item at given index.
-	 * 
-	 * Precondition: Index already translated.
+	 * Shifts elements after the given index left by one, overwriting it, and
+	 * clears the old last slot.
 	 * 
 	 * @param fromIndex
-	 *            starting position
+	 *            starting position in zero-based list
 	 */
 	private void rotateLeftAfterIndex(int fromIndex) {
-		rangeCheck(fromIndex);
-
-		for (int i = fromIndex; i < tail; i++)
-			data[i] = data[i + 1];
-		data[tail] = null;
-
-		tail--;
-		size--;
+		for (int i = fromIndex; i < size - 1; i++)
+			data[translate(i)] = data[translate(i + 1)];
+		data[translate(size - 1)] = null;
 	}
 
 	/**
-	 * Shifts a range left by one before the given index. Moves the head of the
-	 * range lower in index.
+	 * Moves head back one slot and shifts elements before the given index left
+	 * by one, opening a gap at the given index.
 	 * 
-	 * Precondition: Index already translated.
+	 * Precondition: capacity exceeds size.
 	 * 
 	 * @param fromIndex
-	 *            starting position
+	 *            starting position in zero-based list
 	 */
 	private void rotateLeftBeforeIndex(int fromIndex) {
-		ensureCapacity(size() + 1);
-		rangeCheck(fromIndex);
-
-		for (int i = head; i < fromIndex; i++)
-			data[i] = data[i + 1];
-
-		head--;
-		size++;
+		head = head == 0 ? data.length - 1 : head - 1;
+		for (int i = 0; i < fromIndex; i++)
+			data[translate(i)] = data[translate(i + 1)];
 	}
 
 	/**
-	 * Shifts a range right by one after the given index. Moves the tail of the
-	 * range higher in index.
+	 * Shifts elements from the given index right by one, opening a gap at the
+	 * given index.
 	 * 
-	 * Precondition: Index already translated.
+	 * Precondition: capacity exceeds size.
 	 * 
 	 * @param fromIndex
-	 *            starting position
+	 *            starting position in zero-based list
 	 */
 	private void rotateRightAfterIndex(int fromIndex) {
-		ensureCapacity(size() + 1);
-		rangeCheck(fromIndex);
-
-		for (int i = tail++; i > fromIndex; i--)
-			data[i] = data[i - 1];
-
-		tail++;
-		size++;
+		for (int i = size; i > fromIndex; i--)
+			data[translate(i)] = data[translate(i - 1)];
 	}
 
 	/**
-	 * Shifts a range right by one before the given index. Moves the head of the
-	 * range higher in index. Replaces item at given index.
-	 * 
-	 * Precondition: Index already translated.
+	 * Shifts elements before the given index right by one, overwriting it,
+	 * clears the old head slot, and moves head forward one slot.
 	 * 
 	 * @param fromIndex
-	 *            starting position
+	 *            starting position in zero-based list
 	 */
 	private void rotateRightBeforeIndex(int fromIndex) {
-		rangeCheck(fromIndex);
-
-		for (int i = fromIndex; i > head - 1; i--)
-			data[i] = data[i - 1];
+		for (int i = fromIndex; i > 0; i--)
+			data[translate(i)] = data[translate(i - 1)];
 		data[head] = null;
-
-		head++;
-		size--;
+		head = head == data.length - 1 ? 0 : head + 1;
 	}
 
 	@Override
@@ -412,6 +321,11 @@ public class CircularArrayList<E> extends AbstractDequeList<E> {
 		return size;
 	}
 
+	@Override
+	public Spliterator<E> spliterator() {
+		return new IndexSpliterator();
+	}
+
 	/**
 	 * Translate user index into index useful for circular array.
 	 * 
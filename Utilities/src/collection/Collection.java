@@ -4,6 +4,10 @@
 package collection;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Root of the collection hierarchy. Defines basic behavior for a group of
@@ -96,6 +100,16 @@ public interface Collection<E> extends Iterable<E> {
 	 */
 	Iterator<E> iterator();
 
+	/**
+	 * Creates a possibly parallel stream over a collection. Runs on more than
+	 * one thread only as far as spliterator splits.
+	 * 
+	 * @return parallel stream over elements
+	 */
+	default Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	/**
 	 * Remove object parameter from collection.
 	 * 
@@ -135,6 +149,27 @@ public interface Collection<E> extends Iterable<E> {
 	 */
 	int size();
 
+	/**
+	 * Creates a spliterator over a collection. This implementation wraps
+	 * iterator and splits off growing batches copied into arrays. Collections
+	 * which can split their structure directly should override it.
+	 * 
+	 * @return sized spliterator over elements
+	 */
+	@Override
+	default Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), 0);
+	}
+
+	/**
+	 * Creates a sequential stream over a collection.
+	 * 
+	 * @return stream over elements
+	 */
+	default Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
 	/**
 	 * Translates a collection into an array.
 	 * 
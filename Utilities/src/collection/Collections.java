@@ -1,6 +1,6 @@
 package collection;
 
-import java.util.Random;
+import java.util.Comparator;
 
 /**
  * Auxilary class containing static operations for collections.
@@ -16,12 +16,44 @@ public class Collections {
 	public static final Collection<?> ITERABLE_AND_REMOVE_COLLECTION = new CircularArrayList<Object>();
 	/** Empty collection used for comparable elements. */
 	public static final Collection<?> EMPTY_COMPARABLE_COLLECTION = new ArrayPriorityQueue<Comparable<Object>>();
-	private static final int MERGE_TO_INSERT_SORT = 96;
-	private static final int QUICK_TO_INSERT_SORT = 48;
 
 	private Collections() {
 	}
 
+	/**
+	 * Adds an element to a set if occurrences is positive. Shared by sets
+	 * which inherit counting add(E, int) from a multiset.
+	 * 
+	 * @param set
+	 *            target set
+	 * @param obj
+	 *            element added
+	 * @param occurrences
+	 *            number of occurrences added, at most one of which is kept
+	 * @param <T>
+	 *            type of element
+	 * @return true if set changed
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	static <T> boolean addToSet(Set<T> set, T obj, int occurrences) {
+		checkOccurrences(occurrences);
+		return occurrences > 0 && set.add(obj);
+	}
+
+	/**
+	 * Validates a number of occurrences given to a multiset.
+	 * 
+	 * @param occurrences
+	 *            number of occurrences
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	static void checkOccurrences(int occurrences) {
+		if (occurrences < 0)
+			throw new IllegalArgumentException("Occurrences less than zero.");
+	}
+
 	/**
 	 * Converts a list into an array.
 	 * 
@@ -128,10 +160,10 @@ public class Collections {
 	 */
 	public static <T extends Comparable<? super T>> void insertionSort(
 			List<T> list) {
-		for (int i = 2; i < list.size(); i++) {
-			for (int j = i; j > 1
+		for (int i = 1; i < list.size(); i++) {
+			for (int j = i; j > 0
 					&& (list.get(j)).compareTo(list.get(j - 1)) < 0; j--) {
-				swap(list, j, j - 1);
+				swap(list, j - 1, j);
 			}
 		}
 	}
@@ -185,6 +217,9 @@ public class Collections {
 	 * are stability and predictable performance on large lists. Reasonable on
 	 * larger lists (greater than few dozen).
 	 * 
+	 * This implementation sorts an array copy of list and writes it back, so
+	 * it never calls get or set by index.
+	 * 
 	 * Stability: Equal elements are not changed.
 	 * 
 	 * Extra Space: O(n)
@@ -199,34 +234,29 @@ public class Collections {
 	 *            type of element
 	 */
 	public static <T extends Comparable<? super T>> void mergeSort(List<T> list) {
-		if (list.size() < 2)
-			return;
-		else if (list.size() < MERGE_TO_INSERT_SORT) {
-			insertionSort(list);
-			return;
-		}
-		int half = list.size() / 2;
-
-		// suppress safe since only elements of type T will be copied into list
-		List<T> firstHalf = new CircularArrayList<T>();
-		for (int i = 0; i < half; i++)
-			firstHalf.set(i, list.get(i));
-		List<T> secondHalf = new CircularArrayList<T>();
-		for (int i = half; i < list.size(); i++)
-			secondHalf.set(i, list.get(i));
-
-		mergeSort(firstHalf);
-		mergeSort(secondHalf);
-		for (int i = 0, j = 0, k = 0; i < list.size(); i++)
-			if (j < firstHalf.size() && k < secondHalf.size())
-				list.set(
-						i,
-						(firstHalf.get(j)).compareTo(secondHalf.get(k)) < 0 ? firstHalf
-								.get(j++) : secondHalf.get(k++));
-			else if (j < firstHalf.size() && k >= secondHalf.size())
-				list.set(i, firstHalf.get(j++));
-			else if (k < secondHalf.size() && j >= firstHalf.size())
-				list.set(i, secondHalf.get(k++));
+		mergeSort(list, Comparator.<T> naturalOrder());
+	}
+
+	/**
+	 * Sorts a list by merging sorted halves, ordering elements with a given
+	 * comparator.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * @param list
+	 *            subject of mergeSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void mergeSort(List<T> list,
+			Comparator<? super T> comparator) {
+		T[] array = asArray(list);
+		Arrays.mergeSort(array, comparator);
+		setAll(list, array);
 	}
 
 	/**
@@ -252,45 +282,56 @@ public class Collections {
 	}
 
 	/**
-	 * Cuts a list into two parts. Elements at the front less than the pivot and
-	 * elements at the end greater than the pivot. Ideally, each part is 50/50
-	 * split. 10/90 split is bounded by O(nlog(n)). Worst case, the pivot is at
-	 * the end.
+	 * Sorts a list like mergeSort, sorting and merging large halves in
+	 * parallel on the common fork/join pool.
 	 * 
-	 * This implementation picks its pivot as the first element.
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
 	 * 
 	 * @param list
-	 *            target list being partitioned
-	 * @param first
-	 *            where first part starts
-	 * @param last
-	 *            where second part starts
-	 * @param pivot
-	 *            element used to divide other elements
-	 * @return pivot index
+	 *            subject of parallelMergeSort
+	 * @param <T>
+	 *            type of element
 	 */
-	private static <T extends Comparable<? super T>> int partition(
-			List<T> list, int first, int last, T pivot) {
-		int i = first;
-		for (int j = first + 1; j < last; j++)
-			if ((list.get(j)).compareTo(pivot) <= 0)
-				swap(list, ++i, j);
-		swap(list, first, i);
-		return i;
+	public static <T extends Comparable<? super T>> void parallelMergeSort(
+			List<T> list) {
+		parallelMergeSort(list, Comparator.<T> naturalOrder());
 	}
 
 	/**
-	 * Reasonable as general purpose sorting. Relies on insertion sort for small
-	 * lists. Uses randomized pivots to reduce worse-case scenarios. With
-	 * tuning, runs much faster than mergesort.
+	 * Sorts a list like mergeSort with a given comparator, sorting and merging
+	 * large halves in parallel on the common fork/join pool.
 	 * 
-	 * Stability: Equal elements are changed.
+	 * Stability: Equal elements are not changed.
 	 * 
-	 * Extra space: O(1)
+	 * Extra Space: O(n)
 	 * 
-	 * Comparisons: O(n^2) but typically O(nlog(n))
+	 * @param list
+	 *            subject of parallelMergeSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T> void parallelMergeSort(List<T> list,
+			Comparator<? super T> comparator) {
+		T[] array = asArray(list);
+		Arrays.parallelMergeSort(array, comparator);
+		setAll(list, array);
+	}
+
+	/**
+	 * Introspective sort. Partitions around two pivots, falls back to heapsort
+	 * on deep recursion and to insertion sort on small ranges.
 	 * 
-	 * Swaps: O(n^2) but typically O(nlog(n))
+	 * This implementation sorts an array copy of list and writes it back.
+	 * 
+	 * Stability: Equal elements are changed.
+	 * 
+	 * Extra space: O(n)
+	 * 
+	 * Comparisons: O(nlog(n))
 	 * 
 	 * @param list
 	 *            target list with elements
@@ -298,47 +339,28 @@ public class Collections {
 	 *            type of element
 	 */
 	public static <T extends Comparable<? super T>> void quickSort(List<T> list) {
-		quickSort(list, 0, list.size());
-	}
-
-	private static <T extends Comparable<? super T>> void quickSort(
-			List<T> list, int first, int last) {
-		if (list.size() < 2)
-			return;
-		else if (list.size() < QUICK_TO_INSERT_SORT)
-			insertionSort(list);
-		else if (first < last) {
-			int pivot = randomPartition(list, first, last);
-			if (pivot < list.size() / 2) {
-				quickSort(list, first, pivot - 1);
-				quickSort(list, pivot + 1, last);
-			} else {
-				quickSort(list, pivot + 1, last);
-				quickSort(list, first, pivot - 1);
-			}
-		}
+		quickSort(list, Comparator.<T> naturalOrder());
 	}
 
 	/**
-	 * Cuts an list into two parts. Elements at the front less than the pivot
-	 * and elements at the end greater than the pivot. Ideally, each part is
-	 * 50/50 split. 10/90 split is bounded by O(nlog(n)). Worst case, the pivot
-	 * is at the end.
+	 * Introspective sort, ordering elements with a given comparator.
 	 * 
-	 * This implementation picks its pivot at random.
+	 * Stability: Equal elements are changed.
+	 * 
+	 * Extra space: O(n)
 	 * 
 	 * @param list
-	 *            target list being partitioned
-	 * @param first
-	 *            where first part starts
-	 * @param last
-	 *            where second part starts
-	 * @return pivot index
+	 *            target list with elements
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
 	 */
-	private static <T extends Comparable<? super T>> int randomPartition(
-			List<T> list, int first, int last) {
-		swap(list, first, new Random().nextInt(last));
-		return partition(list, first, last, list.get(first));
+	public static <T> void quickSort(List<T> list,
+			Comparator<? super T> comparator) {
+		T[] array = asArray(list);
+		Arrays.quickSort(array, comparator);
+		setAll(list, array);
 	}
 
 	/**
@@ -407,6 +429,68 @@ public class Collections {
 		}
 	}
 
+	/**
+	 * Removes an element from a set if occurrences is positive. Shared by sets
+	 * which inherit counting remove(Object, int) from a multiset.
+	 * 
+	 * @param set
+	 *            target set
+	 * @param obj
+	 *            element removed
+	 * @param occurrences
+	 *            number of occurrences removed
+	 * @return true if set changed
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	static boolean removeFromSet(Set<?> set, Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		return occurrences > 0 && set.remove(obj);
+	}
+
+	/**
+	 * Replaces every element of a list in order through one list iterator.
+	 * 
+	 * @param list
+	 *            target list
+	 * @param array
+	 *            replacements, one per element of list
+	 */
+	private static <T> void setAll(List<T> list, T[] array) {
+		ListIterator<T> it = list.listIterator();
+		for (T e : array) {
+			it.next();
+			it.set(e);
+		}
+	}
+
+	/**
+	 * Adds or removes an element so a set holds it count times.
+	 * 
+	 * @param set
+	 *            target set
+	 * @param obj
+	 *            element whose count is assigned
+	 * @param count
+	 *            zero or one
+	 * @param <T>
+	 *            type of element
+	 * @return number of occurrences before
+	 * @throws IllegalArgumentException
+	 *             if count is negative or greater than one
+	 */
+	static <T> int setCountInSet(Set<T> set, T obj, int count) {
+		checkOccurrences(count);
+		if (count > 1)
+			throw new IllegalArgumentException("Count greater than one.");
+		int previous = set.contains(obj) ? 1 : 0;
+		if (count > previous)
+			set.add(obj);
+		else if (count < previous)
+			set.remove(obj);
+		return previous;
+	}
+
 	/**
 	 * Swaps elements at two given indices within an list. Last index must be
 	 * greater than first index.
@@ -427,4 +511,48 @@ public class Collections {
 		list.set(secondIndex, temp);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Sorts a list by finding runs already in order and merging them. Its
+	 * main advantages are stability and speed on partly sorted lists.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * Comparisons and Swaps: O(n) on sorted or reversed lists and close to it
+	 * on nearly sorted lists. Therefore adaptive. O(nlog(n))
+	 * 
+	 * @param list
+	 *            subject of timSort
+	 * @param <T>
+	 *            type of element
+	 */
+	public static <T extends Comparable<? super T>> void timSort(List<T> list) {
+		timSort(list, Comparator.<T> naturalOrder());
+	}
+
+	/**
+	 * Sorts a list by finding runs already in order and merging them,
+	 * ordering elements with a given comparator.
+	 * 
+	 * Stability: Equal elements are not changed.
+	 * 
+	 * Extra Space: O(n)
+	 * 
+	 * @param list
+	 *            subject of timSort
+	 * @param comparator
+	 *            ordering being used
+	 * @param <T>
+	 *            type of element
+	 * @throws IllegalArgumentException
+	 *             if comparator is found to be inconsistent
+	 */
+	public static <T> void timSort(List<T> list,
+			Comparator<? super T> comparator) {
+		T[] array = asArray(list);
+		Arrays.timSort(array, comparator);
+		setAll(list, array);
+	}
+
+}
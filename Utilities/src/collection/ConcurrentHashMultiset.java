@@ -0,0 +1,596 @@
+package collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread safe multiset implemented through hashing.
+ *
+ * Elements are spread over a fixed number of stripes, each with its own lock
+ * and table. Locks are only taken to link or unlink entries, so threads
+ * working in different stripes never wait on each other. Counts of existing
+ * entries change through compare and swap without any lock, so many threads
+ * may count the same hot element at once.
+ *
+ * Lookups and iteration take no locks. Iterators are weakly consistent: they
+ * never throw ConcurrentModificationException and reflect some, but not
+ * necessarily all, changes made after their creation.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class ConcurrentHashMultiset<E> extends AbstractMultiset<E> {
+
+	/**
+	 * Iterator for ConcurrentHashMultiset. Returns each entry's data once per
+	 * occurrence counted when the entry was reached.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class ConcurrentIterator implements Iterator<E> {
+
+		/** Can remove be called */
+		private boolean canRemove;
+		/** Entry whose data is returned next */
+		private Multiset.Entry<E> entry;
+		/** Distinct entries */
+		private EntryIterator entries;
+		/** Occurrences of entry not yet returned */
+		private int remaining;
+
+		private ConcurrentIterator() {
+			entries = new EntryIterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0 || entries.hasNext();
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			if (remaining < 1) {
+				entry = entries.next();
+				remaining = entry.getCount();
+			}
+			remaining--;
+			canRemove = true;
+			return entry.getElement();
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove)
+				throw new IllegalStateException("next not called");
+
+			ConcurrentHashMultiset.this.remove(entry.getElement(), 1);
+			canRemove = false;
+		}
+
+	}
+
+	/**
+	 * Iterator over distinct entries of ConcurrentHashMultiset. Counts are read
+	 * once when an entry is reached.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class EntryIterator implements Iterator<Multiset.Entry<E>> {
+
+		/** Reference to next bin */
+		private int bin;
+		/** Entry returned next */
+		private Multiset.Entry<E> entry;
+		/** Entry last returned */
+		private Multiset.Entry<E> last;
+		/** Node whose successors are visited next */
+		private Node<E> node;
+		/** Reference to next stripe */
+		private int stripe;
+		/** Table being walked */
+		private AtomicReferenceArray<Node<E>> table;
+
+		private EntryIterator() {
+			advance();
+		}
+
+		/**
+		 * Moves to the next live node in any stripe.
+		 */
+		private void advance() {
+			entry = null;
+			while (entry == null) {
+				if (node != null)
+					node = node.next;
+				while (node == null) {
+					if (table != null && bin < table.length())
+						node = table.get(bin++);
+					else if (stripe < stripes.length) {
+						table = stripes[stripe++].table;
+						bin = 0;
+					} else
+						return;
+				}
+				int count = node.count.get();
+				if (count > 0)
+					entry = new ImmutableEntry<E>(node.data, count);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return entry != null;
+		}
+
+		@Override
+		public Multiset.Entry<E> next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			last = entry;
+			advance();
+			return last;
+		}
+
+		/**
+		 * This implementation removes every occurrence counted when the entry
+		 * was reached, or fewer if some have since been removed.
+		 */
+		@Override
+		public void remove() {
+			if (last == null)
+				throw new IllegalStateException("next not called");
+
+			ConcurrentHashMultiset.this.remove(last.getElement(),
+					last.getCount());
+			last = null;
+		}
+
+	}
+
+	/**
+	 * A single entry in a stripe's table. A node whose count has reached zero
+	 * is dead: its count never changes again and it is about to be unlinked.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Node<E> {
+
+		/**
+		 * How many added objects equal data. Shared with copies made when the
+		 * table grows.
+		 */
+		private final AtomicInteger count;
+		/** Object stored */
+		private final E data;
+		/** Hash code of data */
+		private final int hash;
+		/** Reference to next linked node */
+		private volatile Node<E> next;
+
+		/**
+		 * Constructs a node with data, count, and a linked node.
+		 *
+		 * @param data
+		 *            object stored
+		 * @param hash
+		 *            hash code of data
+		 * @param count
+		 *            how many added objects equal data
+		 * @param next
+		 *            reference to next linked node
+		 */
+		private Node(E data, int hash, AtomicInteger count, Node<E> next) {
+			this.count = count;
+			this.data = data;
+			this.hash = hash;
+			this.next = next;
+		}
+
+	}
+
+	/**
+	 * Independently locked portion of ConcurrentHashMultiset.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Stripe<E> extends ReentrantLock {
+
+		private static final long serialVersionUID = 1L;
+
+		/** Number of linked nodes, written under lock */
+		private volatile int distinct;
+		/** Bins of linked nodes, replaced whole when grown */
+		private volatile AtomicReferenceArray<Node<E>> table;
+
+		private Stripe() {
+			table = new AtomicReferenceArray<Node<E>>(Arrays.DEFAULT_CAPACITY);
+		}
+
+		/**
+		 * Doubles capacity. Nodes are copied rather than relinked so lock
+		 * free readers of the old table still see every chain whole. Copies
+		 * share counts with their originals. Dead nodes are dropped. Must
+		 * hold lock.
+		 */
+		private void grow() {
+			AtomicReferenceArray<Node<E>> old = table;
+			if (old.length() >= MAXIMUM_CAPACITY)
+				return;
+			AtomicReferenceArray<Node<E>> grown = new AtomicReferenceArray<Node<E>>(
+					old.length() * 2);
+			int mask = grown.length() - 1;
+			for (int i = 0; i < old.length(); i++)
+				for (Node<E> node = old.get(i); node != null; node = node.next) {
+					if (node.count.get() == 0) {
+						distinct--;
+						continue;
+					}
+					int index = node.hash & mask;
+					grown.set(index, new Node<E>(node.data, node.hash,
+							node.count, grown.get(index)));
+				}
+			table = grown;
+		}
+
+		/**
+		 * Unlinks the node holding given count, if still linked. Must hold
+		 * lock.
+		 *
+		 * @param hash
+		 *            mixed hash code
+		 * @param count
+		 *            count of dead node
+		 */
+		private void unlink(int hash, AtomicInteger count) {
+			AtomicReferenceArray<Node<E>> bins = table;
+			int index = hash & (bins.length() - 1);
+			Node<E> prev = null;
+			for (Node<E> node = bins.get(index); node != null; node = node.next) {
+				if (node.count == count) {
+					if (prev == null)
+						bins.set(index, node.next);
+					else
+						prev.next = node.next;
+					distinct--;
+					return;
+				}
+				prev = node;
+			}
+		}
+
+	}
+
+	/** Number of stripes used by default */
+	private static final int DEFAULT_CONCURRENCY = 16;
+	/** Most stripes allowed */
+	private static final int MAXIMUM_CONCURRENCY = 1 << 16;
+	/** Most bins a stripe's table may have */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/** percentage of capacity filled before resize occurs */
+	private final float load;
+	/** Total number of occurrences */
+	private final LongAdder size;
+	/** Shift moving high hash bits onto a stripe index */
+	private final int stripeShift;
+	/** Independently locked portions */
+	private final Stripe<E>[] stripes;
+
+	/**
+	 * Constructs ConcurrentHashMultiset with default concurrency.
+	 */
+	public ConcurrentHashMultiset() {
+		this(DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Constructs ConcurrentHashMultiset with at least as many stripes as given
+	 * concurrency level, rounded up to a power of two.
+	 *
+	 * @param concurrency
+	 *            number of threads expected to add or remove at once
+	 * @throws IllegalArgumentException
+	 *             if concurrency is less than one
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentHashMultiset(int concurrency) {
+		if (concurrency < 1)
+			throw new IllegalArgumentException("Concurrency less than one.");
+		int bits = 0;
+		while ((1 << bits) < concurrency && (1 << bits) < MAXIMUM_CONCURRENCY)
+			bits++;
+		stripes = (Stripe<E>[]) new Stripe<?>[1 << bits];
+		// suppression safe since only stripes of type E will be inserted
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i] = new Stripe<E>();
+		stripeShift = 32 - bits;
+		load = HashMultiset.DEFAULT_LOAD;
+		size = new LongAdder();
+	}
+
+	@Override
+	public boolean add(E obj) {
+		return add(obj, 1);
+	}
+
+	/**
+	 * This implementation only locks when given object is not yet present.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if count would exceed Integer.MAX_VALUE
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
+		int hash = hash(obj);
+		Stripe<E> stripe = stripeFor(hash);
+
+		// Fast path: bump count of a live node
+		Node<E> node = find(stripe.table, obj, hash);
+		if (node != null && increment(node.count, occurrences))
+			return true;
+
+		stripe.lock();
+		try {
+			// Node may have been linked or killed since
+			AtomicReferenceArray<Node<E>> bins = stripe.table;
+			node = find(bins, obj, hash);
+			if (node != null && increment(node.count, occurrences))
+				return true;
+
+			int index = hash & (bins.length() - 1);
+			bins.set(index, new Node<E>(obj, hash, new AtomicInteger(
+					occurrences), bins.get(index)));
+			size.add(occurrences);
+			if (++stripe.distinct > bins.length() * load)
+				stripe.grow();
+			return true;
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * This implementation kills every node before unlinking it, so concurrent
+	 * adds retry under lock rather than count into a removed node.
+	 */
+	@Override
+	public void clear() {
+		for (Stripe<E> stripe : stripes) {
+			stripe.lock();
+			try {
+				AtomicReferenceArray<Node<E>> bins = stripe.table;
+				for (int i = 0; i < bins.length(); i++)
+					for (Node<E> node = bins.get(i); node != null; node = node.next)
+						size.add(-node.count.getAndSet(0));
+				stripe.table = new AtomicReferenceArray<Node<E>>(
+						Arrays.DEFAULT_CAPACITY);
+				stripe.distinct = 0;
+			} finally {
+				stripe.unlock();
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return count(obj) > 0;
+	}
+
+	@Override
+	public int count(Object obj) {
+		int hash = hash(obj);
+		Node<E> node = find(stripeFor(hash).table, obj, hash);
+		return node == null ? 0 : node.count.get();
+	}
+
+	/**
+	 * This implementation may count entries whose last occurrence is being
+	 * removed.
+	 */
+	@Override
+	protected int distinctSize() {
+		int distinct = 0;
+		for (Stripe<E> stripe : stripes)
+			distinct += stripe.distinct;
+		return distinct;
+	}
+
+	/**
+	 * This implementation returns snapshots of entries which do not change
+	 * with ConcurrentHashMultiset.
+	 */
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		return new EntryIterator();
+	}
+
+	/**
+	 * Finds the live node with data equal to given object.
+	 *
+	 * @param bins
+	 *            table being searched
+	 * @param obj
+	 *            queried object
+	 * @param hash
+	 *            mixed hash of queried object
+	 * @return live node with data equal to given object or null
+	 */
+	private static <E> Node<E> find(AtomicReferenceArray<Node<E>> bins,
+			Object obj, int hash) {
+		Node<E> node = bins.get(hash & (bins.length() - 1));
+		while (node != null) {
+			if (node.hash == hash
+					&& (node.data == null ? obj == null : node.data.equals(obj))
+					&& node.count.get() > 0)
+				return node;
+			node = node.next;
+		}
+		return null;
+	}
+
+	/**
+	 * Generates mixed hash code whose high bits pick a stripe and whose low
+	 * bits pick a bin.
+	 *
+	 * @param obj
+	 *            hashing subject
+	 * @return mixed hash code
+	 */
+	private static int hash(Object obj) {
+		return MixingHashStrategy.mix(obj == null ? 0 : obj.hashCode());
+	}
+
+	/**
+	 * Raises a live count.
+	 *
+	 * @param count
+	 *            count being raised
+	 * @param occurrences
+	 *            amount added
+	 * @return false if count is dead
+	 * @throws IllegalArgumentException
+	 *             if count would exceed Integer.MAX_VALUE
+	 */
+	private boolean increment(AtomicInteger count, int occurrences) {
+		while (true) {
+			int current = count.get();
+			if (current == 0)
+				return false;
+			if (current > Integer.MAX_VALUE - occurrences)
+				throw new IllegalArgumentException("Count would overflow.");
+			if (count.compareAndSet(current, current + occurrences)) {
+				size.add(occurrences);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * This implementation is weakly consistent and never throws
+	 * ConcurrentModificationException.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new ConcurrentIterator();
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return remove(obj, 1);
+	}
+
+	/**
+	 * This implementation only locks when the last occurrence is removed.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
+		int hash = hash(obj);
+		Stripe<E> stripe = stripeFor(hash);
+		Node<E> node = find(stripe.table, obj, hash);
+		if (node == null)
+			return false;
+
+		while (true) {
+			int current = node.count.get();
+			if (current == 0)
+				return false;
+			int removed = Math.min(current, occurrences);
+			if (node.count.compareAndSet(current, current - removed)) {
+				size.add(-removed);
+				if (current == removed) {
+					stripe.lock();
+					try {
+						stripe.unlink(hash, node.count);
+					} finally {
+						stripe.unlock();
+					}
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * This implementation is atomic with respect to other operations on given
+	 * object.
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		checkOccurrences(count);
+		int hash = hash(obj);
+		Stripe<E> stripe = stripeFor(hash);
+		stripe.lock();
+		try {
+			AtomicReferenceArray<Node<E>> bins = stripe.table;
+			Node<E> node;
+			while ((node = find(bins, obj, hash)) != null) {
+				int previous = node.count.get();
+				// A concurrent remove may kill the node first
+				if (previous > 0 && node.count.compareAndSet(previous, count)) {
+					size.add(count - previous);
+					if (count == 0)
+						stripe.unlink(hash, node.count);
+					return previous;
+				}
+			}
+
+			if (count > 0) {
+				int index = hash & (bins.length() - 1);
+				bins.set(index, new Node<E>(obj, hash, new AtomicInteger(count),
+						bins.get(index)));
+				size.add(count);
+				if (++stripe.distinct > bins.length() * load)
+					stripe.grow();
+			}
+			return 0;
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * This implementation sums counters which may change during summation.
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(size.sum(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns stripe responsible for a hash.
+	 *
+	 * @param hash
+	 *            mixed hash code
+	 * @return stripe responsible for hash
+	 */
+	private Stripe<E> stripeFor(int hash) {
+		return stripes[(int) ((hash & 0xffffffffL) >>> stripeShift)];
+	}
+
+}
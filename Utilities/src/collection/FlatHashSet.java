@@ -0,0 +1,467 @@
+package collection;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set implemented through open addressing. Elements are stored directly in
+ * one array without entry nodes. A parallel array of control bytes holds seven
+ * bits of each element's hash, and lookups examine eight control bytes at a
+ * time packed into one long.
+ * 
+ * Collisions are resolved by linear probing. Removal shifts following elements
+ * backward instead of leaving deleted markers, so probe sequences never grow
+ * from removals.
+ * 
+ * @author Jacob Malter
+ * 
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class FlatHashSet<E> extends AbstractMultiset<E> implements Set<E> {
+
+	/**
+	 * Iterator for FlatHashSet. Visits slots from last to first. Fails fast if
+	 * the set is structurally changed other than through this iterator.
+	 * 
+	 * @author Jacob Malter
+	 * 
+	 */
+	private class FlatIterator implements Iterator<E> {
+
+		/** Can remove be called */
+		private boolean canRemove;
+		/** modCount this iterator agrees with */
+		private int expectedModCount;
+		/** Element last returned from wrapped, if any */
+		private E lastWrapped;
+		/** Slot of last returned element, -1 if taken from wrapped */
+		private int lastReturned;
+		/** Slots at or above pointer have been visited */
+		private int pointer;
+		/** Number of elements not yet returned */
+		private int remaining;
+		/**
+		 * Elements moved from unvisited slots into visited slots by removal
+		 * through this iterator
+		 */
+		private E[] wrapped;
+		/** Number of elements in wrapped */
+		private int wrappedSize;
+
+		private FlatIterator() {
+			expectedModCount = modCount;
+			pointer = keys.length;
+			lastReturned = -1;
+			remaining = size;
+		}
+
+		/**
+		 * Remembers an element which would otherwise be skipped.
+		 * 
+		 * @param obj
+		 *            element moved behind the pointer
+		 */
+		@SuppressWarnings("unchecked")
+		private void addWrapped(E obj) {
+			if (wrapped == null)
+				wrapped = (E[]) new Object[GROUP];
+			// suppression safe since only elements of type E will be inserted
+			else if (wrappedSize == wrapped.length)
+				wrapped = java.util.Arrays.copyOf(wrapped, wrapped.length * 2);
+			wrapped[wrappedSize++] = obj;
+		}
+
+		/**
+		 * Throws an exception if the set changed behind this iterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public E next() {
+			checkForComodification();
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			remaining--;
+			canRemove = true;
+			while (--pointer >= 0)
+				if (controlAt(pointer) != EMPTY) {
+					lastReturned = pointer;
+					return keys[pointer];
+				}
+
+			// Only elements moved past the first slot remain
+			pointer = 0;
+			lastReturned = -1;
+			lastWrapped = wrapped[--wrappedSize];
+			wrapped[wrappedSize] = null;
+			return lastWrapped;
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove)
+				throw new IllegalStateException("next not called");
+			checkForComodification();
+
+			if (lastReturned >= 0)
+				delete(lastReturned, this);
+			else
+				delete(find(lastWrapped, hash(lastWrapped)), this);
+			size--;
+			expectedModCount = ++modCount;
+			lastWrapped = null;
+			canRemove = false;
+		}
+
+	}
+
+	/** Control byte of a slot without an element */
+	private static final int EMPTY = 0;
+	/** Number of control bytes examined at once */
+	private static final int GROUP = 8;
+	/** Most slots the table may have */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	/** Highest bit of every byte in a long */
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	/** Lowest bit of every byte in a long */
+	private static final long LOW_BITS = 0x0101010101010101L;
+
+	/** Control bytes, eight slots per long */
+	private long[] control;
+	/** memory for elements */
+	private E[] keys;
+	/** percentage of capacity filled before resize occurs */
+	private final float load;
+	/** keys.length - 1 */
+	private int mask;
+	/** number of times elements were inserted or deleted */
+	private int modCount;
+	/** number of elements inserted */
+	private int size;
+
+	/**
+	 * Constructs FlatHashSet with default capacity and default load.
+	 */
+	public FlatHashSet() {
+		this(0);
+	}
+
+	/**
+	 * Constructs FlatHashSet with enough capacity to hold the given number of
+	 * elements without resizing.
+	 * 
+	 * @param expectedSize
+	 *            number of elements expected
+	 * @throws IllegalArgumentException
+	 *             if expectedSize is negative
+	 */
+	public FlatHashSet(int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Expected size less than zero.");
+		load = HashMultiset.DEFAULT_LOAD;
+		int capacity = Arrays.DEFAULT_CAPACITY;
+		while (capacity < MAXIMUM_CAPACITY && capacity * load < expectedSize)
+			capacity *= 2;
+		allocate(capacity);
+	}
+
+	@Override
+	public boolean add(E obj) {
+		int hash = hash(obj);
+		int index = find(obj, hash);
+		if (index >= 0)
+			return false;
+
+		index = -index - 1;
+		keys[index] = obj;
+		setControl(index, tag(hash));
+		modCount++;
+		if (++size > keys.length * load)
+			resize();
+		return true;
+	}
+
+	/**
+	 * This implementation adds at most one occurrence.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		return Collections.addToSet(this, obj, occurrences);
+	}
+
+	/**
+	 * Creates empty arrays for a given capacity.
+	 * 
+	 * @param capacity
+	 *            power of two no smaller than GROUP
+	 */
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = (E[]) new Object[capacity];
+		// suppression safe since only elements of type E will be inserted
+		control = new long[capacity / GROUP];
+		mask = capacity - 1;
+	}
+
+	@Override
+	public void clear() {
+		java.util.Arrays.fill(keys, null);
+		java.util.Arrays.fill(control, 0L);
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return find(obj, hash(obj)) >= 0;
+	}
+
+	/**
+	 * Returns control byte of a slot.
+	 * 
+	 * @param index
+	 *            slot
+	 * @return control byte, EMPTY if slot has no element
+	 */
+	private int controlAt(int index) {
+		return (int) (control[index >>> 3] >>> ((index & 7) << 3)) & 0xff;
+	}
+
+	@Override
+	public int count(Object obj) {
+		return contains(obj) ? 1 : 0;
+	}
+
+	/**
+	 * Empties a slot and shifts following elements of its cluster backward so
+	 * no lookup passes over an empty slot before reaching its element.
+	 * 
+	 * @param index
+	 *            slot being emptied
+	 * @param it
+	 *            iterator removing the element, or null
+	 */
+	private void delete(int index, FlatIterator it) {
+		int hole = index;
+		int next = (hole + 1) & mask;
+		while (controlAt(next) != EMPTY) {
+			int home = hash(keys[next]) & mask;
+			// Move if hole lies cyclically within [home, next)
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				if (it != null && next < it.pointer && hole >= it.pointer)
+					it.addWrapped(keys[next]);
+				keys[hole] = keys[next];
+				setControl(hole, controlAt(next));
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = null;
+		setControl(hole, EMPTY);
+	}
+
+	@Override
+	protected int distinctSize() {
+		return size;
+	}
+
+	/**
+	 * Finds the first empty slot in the probe sequence of a hash.
+	 * 
+	 * @param hash
+	 *            mixed hash code
+	 * @return first empty slot
+	 */
+	private int emptySlot(int hash) {
+		int slot = hash & mask;
+		int group = slot >>> 3;
+		long live = -1L << ((slot & 7) << 3);
+		long empties;
+		while ((empties = ~control[group] & HIGH_BITS & live) == 0) {
+			group = (group + 1) & (control.length - 1);
+			live = -1L;
+		}
+		return (group << 3) | (Long.numberOfTrailingZeros(empties) >>> 3);
+	}
+
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		Iterator<E> it = iterator();
+		return new Iterator<Multiset.Entry<E>>() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Multiset.Entry<E> next() {
+				return new ImmutableEntry<E>(it.next(), 1);
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+			}
+
+		};
+	}
+
+	/**
+	 * Finds the slot of an element. Probes eight control bytes at once; only
+	 * slots whose control byte matches the element's tag are compared.
+	 * 
+	 * @param obj
+	 *            queried object
+	 * @param hash
+	 *            mixed hash of queried object
+	 * @return slot of element if found, otherwise (-(first empty slot) - 1)
+	 */
+	private int find(Object obj, int hash) {
+		long pattern = LOW_BITS * tag(hash);
+		int slot = hash & mask;
+		int group = slot >>> 3;
+		int groupMask = control.length - 1;
+		long live = -1L << ((slot & 7) << 3);
+
+		while (true) {
+			long word = control[group];
+			long empties = ~word & HIGH_BITS & live;
+			long difference = word ^ pattern;
+			long matches = (difference - LOW_BITS) & ~difference & HIGH_BITS
+					& live;
+			// Slots past the first empty belong to another cluster
+			if (empties != 0)
+				matches &= (empties & -empties) - 1;
+
+			while (matches != 0) {
+				int index = (group << 3)
+						| (Long.numberOfTrailingZeros(matches) >>> 3);
+				if (keys[index] == null ? obj == null : keys[index].equals(obj))
+					return index;
+				matches &= matches - 1;
+			}
+			if (empties != 0)
+				return -((group << 3) | (Long
+						.numberOfTrailingZeros(empties) >>> 3)) - 1;
+
+			group = (group + 1) & groupMask;
+			live = -1L;
+		}
+	}
+
+	/**
+	 * Generates mixed hash code whose low bits pick a slot and whose high bits
+	 * form the tag.
+	 * 
+	 * @param obj
+	 *            hashing subject
+	 * @return mixed hash code
+	 */
+	private int hash(Object obj) {
+		return MixingHashStrategy.mix(obj == null ? 0 : obj.hashCode());
+	}
+
+	/**
+	 * This implementation tolerates removal through the iterator but otherwise
+	 * ignores changes to underlying FlatHashSet.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new FlatIterator();
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		int index = find(obj, hash(obj));
+		if (index < 0)
+			return false;
+		delete(index, null);
+		size--;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * This implementation removes the only occurrence.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		return Collections.removeFromSet(this, obj, occurrences);
+	}
+
+	/**
+	 * Doubles capacity and reinserts elements.
+	 */
+	private void resize() {
+		if (keys.length >= MAXIMUM_CAPACITY)
+			throw new OutOfMemoryError("No more room to expand array.");
+		E[] oldKeys = keys;
+		long[] oldControl = control;
+		allocate(oldKeys.length * 2);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if ((oldControl[i >>> 3] >>> ((i & 7) << 3) & 0xff) == EMPTY)
+				continue;
+			int hash = hash(oldKeys[i]);
+			int index = emptySlot(hash);
+			keys[index] = oldKeys[i];
+			setControl(index, tag(hash));
+		}
+	}
+
+	/**
+	 * Assigns control byte of a slot.
+	 * 
+	 * @param index
+	 *            slot
+	 * @param value
+	 *            control byte
+	 */
+	private void setControl(int index, int value) {
+		int shift = (index & 7) << 3;
+		control[index >>> 3] = (control[index >>> 3] & ~(0xffL << shift))
+				| ((long) value << shift);
+	}
+
+	/**
+	 * This implementation accepts only counts of zero and one.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if count is greater than one
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		return Collections.setCountInSet(this, obj, count);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns control byte of an occupied slot: high bit set with the top
+	 * seven bits of hash below it.
+	 * 
+	 * @param hash
+	 *            mixed hash code
+	 * @return control byte
+	 */
+	private static int tag(int hash) {
+		return 0x80 | (hash >>> 25);
+	}
+
+}
@@ -1,12 +1,24 @@
 package collection;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * A multiset implemented through hashing.
- * 
+ *
+ * In incremental mode, growing the table does not move every entry at once.
+ * The old table is kept beside the new one and a bounded number of buckets
+ * are migrated on each operation until the old table is empty.
+ *
+ * A bucket whose chain grows past TREEIFY_THRESHOLD is converted into a
+ * red-black tree ordered by hash code, then by natural ordering when elements
+ * are mutually comparable, then by identity hash code. It converts back into a
+ * chain once it shrinks to UNTREEIFY_THRESHOLD. Heavily colliding elements
+ * therefore cost O(log n) rather than O(n) per lookup.
+ *
  * @author Jacob Malter
  *
  * @param <E>
@@ -16,77 +28,343 @@ public class HashMultiset<E> extends AbstractMultiset<E> {
 
 	/**
 	 * A single entry in the hash array.
-	 * 
+	 *
 	 * @author Jacob Malter
 	 *
 	 * @param <E>
 	 *            The type of the elements stored in this collection.
 	 */
-	private static class Entry<E> {
+	private static class Entry<E> extends AbstractEntry<E> {
 
 		/** How many added objects equal data sorted in this node. */
-		private int count;
+		int count;
 		/** Object stored */
-		private E data;
+		E data;
+		/** Hash code of data */
+		final int hash;
 		/** Reference to next linked entry */
-		private Entry<E> next;
+		Entry<E> next;
 
 		/**
 		 * Constructs an entry with data and a linked entry.
-		 * 
+		 *
 		 * @param data
 		 *            object stored
+		 * @param hash
+		 *            hash code of data
 		 * @param next
 		 *            reference to next linked entry
 		 */
-		private Entry(E data, Entry<E> next) {
+		private Entry(E data, int hash, Entry<E> next) {
 			this.count = 1;
 			this.data = data;
+			this.hash = hash;
 			this.next = next;
 		}
 
+		@Override
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public E getElement() {
+			return data;
+		}
+
 	}
 
 	/**
-	 * Iterator for HashMultiset.
-	 * 
+	 * An entry within a treeified bucket. Entries of a tree are still linked
+	 * through next, with the root first, so walking a bucket works the same
+	 * for chains and trees.
+	 *
 	 * @author Jacob Malter
 	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
 	 */
-	private class HashIterator implements Iterator<E> {
+	private static class TreeEntry<E> extends Entry<E> {
+
+		/** Reference to tree children and parent */
+		private TreeEntry<E> left, parent, right;
+		/** Reference to previous linked entry */
+		private TreeEntry<E> prev;
+		/** Color of this entry */
+		private boolean red;
+
+		/**
+		 * Constructs an unlinked tree entry.
+		 *
+		 * @param data
+		 *            object stored
+		 * @param hash
+		 *            hash code of data
+		 */
+		private TreeEntry(E data, int hash) {
+			super(data, hash, null);
+		}
 
-		/** Elements in collection */
+	}
+
+	/**
+	 * Iterator over distinct entries of HashMultiset. Walks the old table
+	 * first when a migration is in progress. Returns live entries, so counts
+	 * reflect later changes. Fails fast if entries are linked, unlinked or
+	 * moved between buckets after creation.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class EntryIterator implements Iterator<Multiset.Entry<E>> {
+
+		/** Entry returned next */
+		private Entry<E> entry;
+		/** modCount this iterator agrees with */
+		private final int expectedModCount;
+		/** Table being walked */
 		private Entry<E>[] iteratorTable;
-		/** Reference to next element */
+		/** Reference to next bucket */
 		private int pointer;
+		/** Is iteratorTable the old table */
+		private boolean walkingOld;
+
+		private EntryIterator() {
+			expectedModCount = modCount;
+			walkingOld = oldTable != null;
+			iteratorTable = walkingOld ? oldTable : table;
+			advance();
+		}
+
+		/**
+		 * Moves to the next entry in either table.
+		 */
+		private void advance() {
+			if (entry != null)
+				entry = entry.next;
+			while (entry == null) {
+				if (pointer < iteratorTable.length)
+					entry = iteratorTable[pointer++];
+				else if (walkingOld) {
+					walkingOld = false;
+					iteratorTable = table;
+					pointer = 0;
+				} else
+					return;
+			}
+		}
+
+		/**
+		 * Throws an exception if the tables changed behind this iterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return entry != null;
+		}
+
+		@Override
+		public Entry<E> next() {
+			checkForComodification();
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			Entry<E> result = entry;
+			advance();
+			return result;
+		}
+
+	}
+
+	/**
+	 * Iterator for HashMultiset. Returns each entry's data once per
+	 * occurrence.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class HashIterator implements Iterator<E> {
+
+		/** Entry whose data is returned next */
+		private Entry<E> entry;
+		/** Distinct entries */
+		private EntryIterator entries;
+		/** Occurrences of entry not yet returned */
+		private int remaining;
 
-		@SuppressWarnings("unchecked")
 		private HashIterator() {
-			// suppression safe since only Entry will be inserted into array
-			iteratorTable = (Entry<E>[]) new Object[table.length];
-			System.arraycopy(table, 0, iteratorTable, 0, table.length);
+			entries = new EntryIterator();
 		}
 
 		@Override
 		public boolean hasNext() {
-			return pointer < size;
+			return remaining > 0 || entries.hasNext();
 		}
 
 		@Override
 		public E next() {
+			entries.checkForComodification();
 			if (!hasNext())
 				throw new NoSuchElementException(
 						"No more elements remaining in iterator");
 
-			Entry<E> entry = iteratorTable[pointer];
-			E result = entry.data;
-			iteratorTable[pointer].count--;
-			if (iteratorTable[pointer].count < 1)
-				if (entry.next != null)
-					iteratorTable[pointer] = entry.next;
-				else
-					pointer++;
-			return result;
+			if (remaining < 1) {
+				entry = entries.next();
+				remaining = entry.count;
+			}
+			remaining--;
+			return entry.data;
+		}
+
+	}
+
+	/**
+	 * Spliterator over a range of buckets, halved on each split. Buckets of
+	 * the old table come first when a migration is in progress. Binds to the
+	 * tables on first use and fails fast if entries are linked, unlinked or
+	 * moved afterwards.
+	 *
+	 * Only an unsplit spliterator reports SIZED. The number of elements in a
+	 * range of buckets is unknown without walking it, so each split halves
+	 * the estimate and neither half reports SIZED or SUBSIZED.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class BucketSpliterator implements Spliterator<E> {
+
+		/** Entry whose data is returned next, null between buckets */
+		private Entry<E> entry;
+		/** Estimated number of elements covered */
+		private int est;
+		/** modCount this spliterator agrees with, set when bound */
+		private int expectedModCount;
+		/** Bucket after last bucket covered, -1 until bound */
+		private int fence;
+		/** Next bucket */
+		private int index;
+		/** Tables being walked, old possibly null */
+		private Entry<E>[] old, current;
+		/** Occurrences of entry not yet returned */
+		private int remaining;
+
+		private BucketSpliterator(int index, int fence, int est,
+				int expectedModCount, Entry<E>[] old, Entry<E>[] current) {
+			this.current = current;
+			this.est = est;
+			this.expectedModCount = expectedModCount;
+			this.fence = fence;
+			this.index = index;
+			this.old = old;
+		}
+
+		/**
+		 * Moves to an entry with occurrences not yet returned.
+		 *
+		 * @return false if no buckets remain, true otherwise
+		 */
+		private boolean advance() {
+			int hi = getFence();
+			while (remaining < 1) {
+				if (entry != null)
+					entry = entry.next;
+				while (entry == null) {
+					if (index >= hi)
+						return false;
+					entry = bucket(index++);
+				}
+				remaining = entry.count;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns first entry of a bucket, counting old buckets first.
+		 *
+		 * @param i
+		 *            bucket across both tables
+		 * @return first entry, possibly null
+		 */
+		private Entry<E> bucket(int i) {
+			int split = old == null ? 0 : old.length;
+			return i < split ? old[i] : current[i - split];
+		}
+
+		/**
+		 * Throws an exception if the tables changed behind this spliterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		/**
+		 * Reports SIZED only before any split, when est is exact.
+		 */
+		@Override
+		public int characteristics() {
+			return fence < 0 || est == size ? Spliterator.SIZED : 0;
+		}
+
+		@Override
+		public long estimateSize() {
+			getFence();
+			return est;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			while (advance()) {
+				remaining--;
+				action.accept(entry.data);
+			}
+			checkForComodification();
+		}
+
+		/**
+		 * Returns fence, binding to tables on first use.
+		 *
+		 * @return bucket after last bucket covered
+		 */
+		private int getFence() {
+			if (fence < 0) {
+				old = oldTable;
+				current = table;
+				est = size;
+				expectedModCount = modCount;
+				fence = (old == null ? 0 : old.length) + current.length;
+			}
+			return fence;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			if (!advance())
+				return false;
+			checkForComodification();
+			remaining--;
+			action.accept(entry.data);
+			return true;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			int hi = getFence(), mid = (index + hi) >>> 1;
+			if (index >= mid)
+				return null;
+			fence = mid;
+			est >>>= 1;
+			return new BucketSpliterator(mid, hi, est, expectedModCount, old,
+					current);
 		}
 
 	}
@@ -98,21 +376,72 @@ public class HashMultiset<E> extends AbstractMultiset<E> {
 			100663319, 201326611, 402653189, 805306457, 1610612741 };
 	/** Reasonably high load rehashing */
 	public static final float DEFAULT_LOAD = 0.75f;
+	/** Old buckets examined by each operation during a migration */
+	public static final int MIGRATION_STEP = 8;
+	/** Chain length at which a bucket is converted into a tree */
+	public static final int TREEIFY_THRESHOLD = 8;
+	/** Tree size at which a bucket is converted back into a chain */
+	public static final int UNTREEIFY_THRESHOLD = 6;
 
 	/** Marks how many elements can be stored in array. */
 	private int capacityIndex;
+	/** number of distinct entries */
+	private int distinct;
+	/** if true, rehashing migrates buckets over many operations */
+	private final boolean incremental;
 	/** percentage of capacity filled before rehash occurs */
 	private float load;
+	/** next bucket of old table to migrate */
+	private int migrated;
+	/** number of times entries were linked, unlinked or moved */
+	private int modCount;
+	/** entries not yet migrated, null unless a migration is in progress */
+	private Entry<E>[] oldTable;
 	/** number of entries inserted */
 	private int size;
+	/** maps hash codes onto table positions */
+	private final HashStrategy strategy;
 	/** memory for entries */
 	private Entry<E>[] table;
 
 	/**
 	 * Constructs HashBag with default capacity and default load.
 	 */
-	@SuppressWarnings("unchecked")
 	public HashMultiset() {
+		this(HashStrategy.DEFAULT);
+	}
+
+	/**
+	 * Constructs HashBag with default capacity, default load, and given hash
+	 * strategy.
+	 *
+	 * @param strategy
+	 *            maps hash codes onto table positions
+	 * @throws IllegalArgumentException
+	 *             if strategy is null
+	 */
+	public HashMultiset(HashStrategy strategy) {
+		this(strategy, false);
+	}
+
+	/**
+	 * Constructs HashBag with default capacity, default load, given hash
+	 * strategy, and given rehashing mode.
+	 *
+	 * @param strategy
+	 *            maps hash codes onto table positions
+	 * @param incremental
+	 *            if true, rehashing migrates buckets over many operations;
+	 *            if false, rehashing migrates every bucket at once
+	 * @throws IllegalArgumentException
+	 *             if strategy is null
+	 */
+	@SuppressWarnings("unchecked")
+	public HashMultiset(HashStrategy strategy, boolean incremental) {
+		if (strategy == null)
+			throw new IllegalArgumentException("Cannot use null strategy.");
+		this.strategy = strategy;
+		this.incremental = incremental;
 		load = DEFAULT_LOAD;
 		table = new Entry[DEFAULT_CAPACITIES[capacityIndex++]];
 		// suppression safe since only elements of type E will be inserted
@@ -120,24 +449,42 @@ public class HashMultiset<E> extends AbstractMultiset<E> {
 
 	@Override
 	public boolean add(E obj) {
-		if (table.length * load < size)
-			rehash();
+		return add(obj, 1);
+	}
+
+	/**
+	 * This implementation hashes the object once regardless of occurrences.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
 		int hash = hash(obj);
+		migrate(hash);
 
 		// Check if node already exists
-		Entry<E> current = table[hash];
-		while (current != null) {
-			if (current.data == null ? obj == null : current.data.equals(obj)) {
-				current.count++;
-				size++;
-				return true;
-			}
-			current = current.next;
+		Entry<E> current = getEntry(obj, hash, table);
+		if (current != null) {
+			current.count += occurrences;
+			size += occurrences;
+			return true;
 		}
 
 		// Add node at the top
-		table[hash] = new Entry<E>(obj, table[hash]);
-		size++;
+		int index = index(hash, table);
+		if (table[index] instanceof TreeEntry)
+			current = putTreeEntry(index, obj, hash);
+		else
+			current = table[index] = new Entry<E>(obj, hash, table[index]);
+		current.count = occurrences;
+		modCount++;
+		if (!(current instanceof TreeEntry)
+				&& length(current, TREEIFY_THRESHOLD) >= TREEIFY_THRESHOLD)
+			treeify(index);
+		size += occurrences;
+		if (table.length * load < ++distinct)
+			rehash();
 		return true;
 	}
 
@@ -145,39 +492,223 @@ public class HashMultiset<E> extends AbstractMultiset<E> {
 	public void clear() {
 		for (int i = 0; i < table.length; i++)
 			table[i] = null;
+		oldTable = null;
+		distinct = 0;
 		size = 0;
+		modCount++;
 	}
 
+	/**
+	 * This implementation consults the old table as well while a migration is
+	 * in progress, and does not migrate any buckets itself.
+	 */
 	@Override
 	public boolean contains(Object obj) {
+		return getEntry(obj) != null;
+	}
+
+	/**
+	 * This implementation consults the old table as well while a migration is
+	 * in progress, and does not migrate any buckets itself.
+	 */
+	@Override
+	public int count(Object obj) {
+		Entry<E> entry = getEntry(obj);
+		return entry == null ? 0 : entry.count;
+	}
+
+	@Override
+	protected int distinctSize() {
+		return distinct;
+	}
+
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		return new EntryIterator();
+	}
+
+	/**
+	 * Returns an entry with data equal to given object from either table.
+	 *
+	 * @param obj
+	 *            queried object
+	 * @return entry with data equal to given object or null
+	 */
+	private Entry<E> getEntry(Object obj) {
 		int hash = hash(obj);
-		Entry<E> current = table[hash];
+		Entry<E> entry = getEntry(obj, hash, table);
+		if (entry == null && oldTable != null)
+			entry = getEntry(obj, hash, oldTable);
+		return entry;
+	}
+
+	/**
+	 * Returns an entry with data equal to given object.
+	 *
+	 * @param obj
+	 *            queried object
+	 * @param hash
+	 *            hash code of queried object
+	 * @param target
+	 *            table being searched
+	 * @return entry with data equal to given object or null
+	 */
+	private Entry<E> getEntry(Object obj, int hash, Entry<E>[] target) {
+		Entry<E> current = target[index(hash, target)];
+		if (current instanceof TreeEntry)
+			return find((TreeEntry<E>) current, obj, hash);
 		while (current != null) {
-			if (current.data == null ? obj == null : current.data.equals(obj))
-				return true;
+			if (current.hash == hash
+					&& (current.data == null ? obj == null : current.data
+							.equals(obj)))
+				return current;
 			current = current.next;
 		}
-		return false;
+		return null;
 	}
 
 	/**
-	 * Generates positive integer position for indexing.
-	 * 
+	 * Compares two objects by natural ordering if they are mutually
+	 * comparable, meaning both are non-null instances of the same Comparable
+	 * class.
+	 *
+	 * @param o1
+	 *            first object
+	 * @param o2
+	 *            second object
+	 * @return natural comparison, or 0 if not mutually comparable
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int comparableOrder(Object o1, Object o2) {
+		if (o1 == null || o2 == null || o1.getClass() != o2.getClass()
+				|| !(o1 instanceof Comparable))
+			return 0;
+		// suppression safe since both objects are of the same Comparable class
+		return ((Comparable) o1).compareTo(o2);
+	}
+
+	/**
+	 * Finds a tree entry with data equal to given object. Descends by hash
+	 * code and natural ordering; where neither decides, both subtrees are
+	 * searched.
+	 *
+	 * @param node
+	 *            root of subtree being searched
+	 * @param obj
+	 *            queried object
+	 * @param hash
+	 *            hash code of queried object
+	 * @return tree entry with data equal to given object or null
+	 */
+	private static <E> TreeEntry<E> find(TreeEntry<E> node, Object obj,
+			int hash) {
+		while (node != null) {
+			if (hash < node.hash)
+				node = node.left;
+			else if (hash > node.hash)
+				node = node.right;
+			else if (node.data == null ? obj == null : node.data.equals(obj))
+				return node;
+			else if (node.left == null)
+				node = node.right;
+			else if (node.right == null)
+				node = node.left;
+			else {
+				int comparison = comparableOrder(obj, node.data);
+				if (comparison < 0)
+					node = node.left;
+				else if (comparison > 0)
+					node = node.right;
+				else {
+					TreeEntry<E> found = find(node.right, obj, hash);
+					if (found != null)
+						return found;
+					node = node.left;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns hash code of an object.
+	 *
 	 * @param obj
 	 *            hashing subject
+	 * @return hash code, 0 for null
+	 */
+	private static int hash(Object obj) {
+		return obj == null ? 0 : obj.hashCode();
+	}
+
+	/**
+	 * Generates positive integer position for indexing.
+	 *
+	 * @param hash
+	 *            hash code of hashing subject
+	 * @param target
+	 *            table being indexed
 	 * @return index
 	 */
-	private int hash(Object obj) {
-		int[] key = collection.Arrays.decompse(
-				obj == null ? 0 : obj.hashCode(), table.length);
-		int[] array = new int[key.length];
-		for (int i = 0; i < array.length; i++)
-			array[i] = new Random(table.length).nextInt(table.length);
-		return Math.abs(Arrays.dotProduct(key, array) % table.length);
+	private int index(int hash, Entry<E>[] target) {
+		return strategy.index(hash, target.length);
 	}
 
 	/**
-	 * This implementation ignores changes to underlying HashBag.
+	 * Inserts a tree entry into the tree ordered by hash code, natural
+	 * ordering, and finally tie-breaking order. Does not rebalance.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param entry
+	 *            unlinked entry being inserted
+	 */
+	private static <E> void insert(TreeEntry<E> root, TreeEntry<E> entry) {
+		TreeEntry<E> current = root;
+		while (true) {
+			int comparison = entry.hash < current.hash ? -1
+					: entry.hash > current.hash ? 1 : comparableOrder(
+							entry.data, current.data);
+			if (comparison == 0)
+				comparison = tieBreakOrder(entry.data, current.data);
+			TreeEntry<E> child = comparison < 0 ? current.left : current.right;
+			if (child == null) {
+				entry.parent = current;
+				if (comparison < 0)
+					current.left = entry;
+				else
+					current.right = entry;
+				return;
+			}
+			current = child;
+		}
+	}
+
+	/**
+	 * Returns true if an entry is null or black.
+	 *
+	 * @param entry
+	 *            tree entry
+	 * @return true if entry is null or black, false otherwise
+	 */
+	private static boolean isBlack(TreeEntry<?> entry) {
+		return entry == null || !entry.red;
+	}
+
+	/**
+	 * Returns true if buckets are still being migrated from an old table.
+	 *
+	 * @return true if a migration is in progress, false otherwise
+	 */
+	public boolean isRehashing() {
+		return oldTable != null;
+	}
+
+	/**
+	 * This implementation walks the live tables and reads counts as it
+	 * reaches each entry. It fails fast with ConcurrentModificationException
+	 * once an element is added or removed outright, or a rehash or migration
+	 * moves entries, since the walk could then skip or repeat entries.
 	 */
 	@Override
 	public Iterator<E> iterator() {
@@ -185,64 +716,582 @@ public class HashMultiset<E> extends AbstractMultiset<E> {
 	}
 
 	/**
-	 * Resizes entry array and rehashes entries.
+	 * Counts linked entries starting at a given entry, stopping early once a
+	 * limit is reached.
+	 *
+	 * @param entry
+	 *            first entry
+	 * @param limit
+	 *            most entries counted
+	 * @return number of entries or limit, whichever is less
+	 */
+	private static int length(Entry<?> entry, int limit) {
+		int length = 0;
+		while (entry != null && length < limit) {
+			length++;
+			entry = entry.next;
+		}
+		return length;
+	}
+
+	/**
+	 * Advances a migration in progress by a bounded number of buckets. The
+	 * bucket which would hold the given hash code is always migrated, so
+	 * callers only need to consult the new table afterward.
+	 *
+	 * @param hash
+	 *            hash code about to be looked up
+	 */
+	private void migrate(int hash) {
+		if (oldTable == null)
+			return;
+		migrateBucket(index(hash, oldTable));
+		for (int i = 0; i < MIGRATION_STEP && migrated < oldTable.length; i++)
+			migrateBucket(migrated++);
+		if (migrated >= oldTable.length)
+			oldTable = null;
+	}
+
+	/**
+	 * Relinks every entry of one old bucket into the current table. Entries
+	 * keep their counts, so each distinct element moves exactly once.
+	 *
+	 * @param index
+	 *            position in old table
+	 */
+	private void migrateBucket(int index) {
+		Entry<E> current = oldTable[index];
+		oldTable[index] = null;
+		if (current != null)
+			modCount++;
+		while (current != null) {
+			Entry<E> next = current.next;
+			int newIndex = index(current.hash, table);
+			if (table[newIndex] instanceof TreeEntry) {
+				Entry<E> moved = putTreeEntry(newIndex, current.data,
+						current.hash);
+				moved.count = current.count;
+			} else {
+				if (current instanceof TreeEntry) {
+					// Tree links are meaningless in the new table
+					Entry<E> copy = new Entry<E>(current.data, current.hash,
+							null);
+					copy.count = current.count;
+					current = copy;
+				}
+				current.next = table[newIndex];
+				table[newIndex] = current;
+				if (length(current, TREEIFY_THRESHOLD) >= TREEIFY_THRESHOLD)
+					treeify(newIndex);
+			}
+			current = next;
+		}
+	}
+
+	/**
+	 * Relinks the root of a treeified bucket as its first entry.
+	 *
+	 * @param index
+	 *            position in table
+	 * @param root
+	 *            root of tree
+	 */
+	private void moveRootToFront(int index, TreeEntry<E> root) {
+		Entry<E> first = table[index];
+		if (first == root)
+			return;
+		if (root.prev != null)
+			root.prev.next = root.next;
+		if (root.next != null)
+			((TreeEntry<E>) root.next).prev = root.prev;
+		root.prev = null;
+		root.next = first;
+		if (first != null)
+			((TreeEntry<E>) first).prev = root;
+		table[index] = root;
+	}
+
+	/**
+	 * Adds an entry for an object absent from a treeified bucket.
+	 *
+	 * @param index
+	 *            position in table
+	 * @param obj
+	 *            object stored
+	 * @param hash
+	 *            hash code of object
+	 * @return added entry
+	 */
+	private TreeEntry<E> putTreeEntry(int index, E obj, int hash) {
+		TreeEntry<E> root = (TreeEntry<E>) table[index];
+		TreeEntry<E> entry = new TreeEntry<E>(obj, hash);
+		insert(root, entry);
+
+		// Link directly after root
+		entry.prev = root;
+		entry.next = root.next;
+		if (root.next != null)
+			((TreeEntry<E>) root.next).prev = entry;
+		root.next = entry;
+
+		moveRootToFront(index, recolorAdd(root, entry));
+		return entry;
+	}
+
+	/**
+	 * Removes an entry from a bucket tree. Typical red-black tree remove.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param entry
+	 *            entry being removed
+	 * @return new root of tree, null if tree became empty
+	 */
+	private static <E> TreeEntry<E> rbRemove(TreeEntry<E> root,
+			TreeEntry<E> entry) {
+		TreeEntry<E> child, parent;
+		boolean removedRed = entry.red;
+
+		if (entry.left == null) {
+			child = entry.right;
+			parent = entry.parent;
+			root = transplant(root, entry, entry.right);
+		} else if (entry.right == null) {
+			child = entry.left;
+			parent = entry.parent;
+			root = transplant(root, entry, entry.left);
+		} else {
+			// Replace entry with its successor
+			TreeEntry<E> successor = entry.right;
+			while (successor.left != null)
+				successor = successor.left;
+			removedRed = successor.red;
+			child = successor.right;
+			if (successor.parent == entry)
+				parent = successor;
+			else {
+				parent = successor.parent;
+				root = transplant(root, successor, successor.right);
+				successor.right = entry.right;
+				successor.right.parent = successor;
+			}
+			root = transplant(root, entry, successor);
+			successor.left = entry.left;
+			successor.left.parent = successor;
+			successor.red = entry.red;
+		}
+
+		entry.left = entry.right = entry.parent = null;
+		return removedRed ? root : recolorRemove(root, child, parent);
+	}
+
+	/**
+	 * Reassigns colors to entries in accordance with red-black tree
+	 * principles. Intended to be called after insert.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param child
+	 *            inserted entry
+	 * @return new root of tree
+	 */
+	private static <E> TreeEntry<E> recolorAdd(TreeEntry<E> root,
+			TreeEntry<E> child) {
+		child.red = true;
+		while (child != root && child.parent.red) {
+			TreeEntry<E> parent = child.parent;
+			TreeEntry<E> grandparent = parent.parent;
+			if (parent == grandparent.left) {
+				// Parent is left child
+				TreeEntry<E> uncle = grandparent.right;
+				if (uncle != null && uncle.red) {
+					parent.red = false;
+					uncle.red = false;
+					grandparent.red = true;
+					child = grandparent;
+				} else {
+					if (child == parent.right) {
+						child = parent;
+						root = rotateLeft(root, child);
+						parent = child.parent;
+					}
+					parent.red = false;
+					grandparent.red = true;
+					root = rotateRight(root, grandparent);
+				}
+			} else {
+				// Parent is right child
+				TreeEntry<E> uncle = grandparent.left;
+				if (uncle != null && uncle.red) {
+					parent.red = false;
+					uncle.red = false;
+					grandparent.red = true;
+					child = grandparent;
+				} else {
+					if (child == parent.left) {
+						child = parent;
+						root = rotateRight(root, child);
+						parent = child.parent;
+					}
+					parent.red = false;
+					grandparent.red = true;
+					root = rotateLeft(root, grandparent);
+				}
+			}
+		}
+		root.red = false;
+		return root;
+	}
+
+	/**
+	 * Reassigns colors to entries in accordance with red-black tree
+	 * principles. Intended to be called after rbRemove removed a black entry.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param child
+	 *            entry which took the removed entry's place, possibly null
+	 * @param parent
+	 *            parent of child
+	 * @return new root of tree
+	 */
+	private static <E> TreeEntry<E> recolorRemove(TreeEntry<E> root,
+			TreeEntry<E> child, TreeEntry<E> parent) {
+		while (child != root && (child == null || !child.red)) {
+			if (child == parent.left) {
+				// child is left child
+				TreeEntry<E> sibling = parent.right;
+				if (sibling.red) {
+					sibling.red = false;
+					parent.red = true;
+					root = rotateLeft(root, parent);
+					sibling = parent.right;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.red = true;
+					child = parent;
+					parent = child.parent;
+				} else {
+					if (isBlack(sibling.right)) {
+						sibling.left.red = false;
+						sibling.red = true;
+						root = rotateRight(root, sibling);
+						sibling = parent.right;
+					}
+					sibling.red = parent.red;
+					parent.red = false;
+					sibling.right.red = false;
+					root = rotateLeft(root, parent);
+					child = root;
+				}
+			} else {
+				// child is right child
+				TreeEntry<E> sibling = parent.left;
+				if (sibling.red) {
+					sibling.red = false;
+					parent.red = true;
+					root = rotateRight(root, parent);
+					sibling = parent.left;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.red = true;
+					child = parent;
+					parent = child.parent;
+				} else {
+					if (isBlack(sibling.left)) {
+						sibling.right.red = false;
+						sibling.red = true;
+						root = rotateLeft(root, sibling);
+						sibling = parent.left;
+					}
+					sibling.red = parent.red;
+					parent.red = false;
+					sibling.left.red = false;
+					root = rotateRight(root, parent);
+					child = root;
+				}
+			}
+		}
+		if (child != null)
+			child.red = false;
+		return root;
+	}
+
+	/**
+	 * Resizes entry array and rehashes entries. In incremental mode, entries
+	 * are left in the old table to be migrated by later operations.
 	 */
 	@SuppressWarnings("unchecked")
 	private void rehash() {
-		if (capacityIndex + 1 >= DEFAULT_CAPACITIES.length)
+		if (capacityIndex >= DEFAULT_CAPACITIES.length)
 			throw new OutOfMemoryError("No more room to expand array.");
-		Entry<E>[] oldTable = (Entry<E>[]) new Object[table.length];
-		System.arraycopy(table, 0, oldTable, 0, table.length);
+
+		// Finish any earlier migration before starting another
+		if (oldTable != null)
+			while (migrated < oldTable.length)
+				migrateBucket(migrated++);
+
+		oldTable = table;
+		migrated = 0;
+		modCount++;
 		table = (Entry<E>[]) new Entry[DEFAULT_CAPACITIES[capacityIndex++]];
 		// suppression safe since only elements of type E will be inserted
 
-		// add old elements
-		for (int j = 0; j < table.length; j++) {
-			while (oldTable[j] != null) {
-				for (int k = 0; k < oldTable[j].count; k++)
-					add(oldTable[j].data);
-				oldTable[j] = oldTable[j].next;
-			}
+		if (!incremental) {
+			while (migrated < oldTable.length)
+				migrateBucket(migrated++);
+			oldTable = null;
 		}
 	}
 
 	@Override
 	public boolean remove(Object obj) {
+		return remove(obj, 1);
+	}
+
+	/**
+	 * This implementation hashes the object once regardless of occurrences.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
 		int hash = hash(obj);
+		migrate(hash);
+		int index = index(hash, table);
 
-		if (table[hash] != null) {
-			// Check top bucket
-			if (table[hash].data == null ? obj == null : table[hash].data
-					.equals(obj)) {
-				table[hash].count--;
-				if (table[hash].count == 0)
-					table[hash] = table[hash].next;
-				size--;
-				return true;
+		if (table[index] instanceof TreeEntry) {
+			TreeEntry<E> entry = find((TreeEntry<E>) table[index], obj, hash);
+			if (entry == null)
+				return false;
+			if (entry.count <= occurrences) {
+				size -= entry.count;
+				removeTreeEntry(index, entry);
+				distinct--;
+				modCount++;
+			} else {
+				entry.count -= occurrences;
+				size -= occurrences;
 			}
+			return true;
+		}
 
-			// Check lower buckets
-			Entry<E> prev = table[hash];
-			Entry<E> current = table[hash].next;
-			while (current != null) {
-				if (current.data == null ? obj == null : current.data
-						.equals(obj)) {
-					current.count--;
-					if (current.count == 0)
-						prev.next = prev.next.next;
-					size--;
-					return true;
+		Entry<E> prev = null;
+		Entry<E> current = table[index];
+		while (current != null) {
+			if (current.hash == hash
+					&& (current.data == null ? obj == null : current.data
+							.equals(obj))) {
+				if (current.count <= occurrences) {
+					size -= current.count;
+					if (prev == null)
+						table[index] = current.next;
+					else
+						prev.next = current.next;
+					distinct--;
+					modCount++;
+				} else {
+					current.count -= occurrences;
+					size -= occurrences;
 				}
-				prev = current;
-				current = current.next;
+				return true;
 			}
+			prev = current;
+			current = current.next;
 		}
 		return false;
 	}
 
+	/**
+	 * Unlinks an entry from a treeified bucket and converts the bucket back
+	 * into a chain if it has become small.
+	 *
+	 * @param index
+	 *            position in table
+	 * @param entry
+	 *            entry being removed
+	 */
+	private void removeTreeEntry(int index, TreeEntry<E> entry) {
+		TreeEntry<E> root = (TreeEntry<E>) table[index];
+
+		// Unlink from list
+		if (entry.prev == null)
+			table[index] = entry.next;
+		else
+			entry.prev.next = entry.next;
+		if (entry.next != null)
+			((TreeEntry<E>) entry.next).prev = entry.prev;
+
+		root = rbRemove(root, entry);
+		if (root == null)
+			table[index] = null;
+		else {
+			moveRootToFront(index, root);
+			if (length(root, UNTREEIFY_THRESHOLD + 1) <= UNTREEIFY_THRESHOLD)
+				untreeify(index);
+		}
+	}
+
+	/**
+	 * Preserves in-order entries while moving entries.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param vertex
+	 *            entry around which rotation occurs
+	 * @return new root of tree
+	 */
+	private static <E> TreeEntry<E> rotateLeft(TreeEntry<E> root,
+			TreeEntry<E> vertex) {
+		TreeEntry<E> temp = vertex.right;
+		vertex.right = temp.left;
+		if (temp.left != null)
+			temp.left.parent = vertex;
+		root = transplant(root, vertex, temp);
+		temp.left = vertex;
+		vertex.parent = temp;
+		return root;
+	}
+
+	/**
+	 * Preserves in-order entries while moving entries.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param vertex
+	 *            entry around which rotation occurs
+	 * @return new root of tree
+	 */
+	private static <E> TreeEntry<E> rotateRight(TreeEntry<E> root,
+			TreeEntry<E> vertex) {
+		TreeEntry<E> temp = vertex.left;
+		vertex.left = temp.right;
+		if (temp.right != null)
+			temp.right.parent = vertex;
+		root = transplant(root, vertex, temp);
+		temp.right = vertex;
+		vertex.parent = temp;
+		return root;
+	}
+
+	/**
+	 * This implementation hashes the object at most twice.
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		checkOccurrences(count);
+		int previous = count(obj);
+		if (count > previous)
+			add(obj, count - previous);
+		else if (count < previous)
+			remove(obj, previous - count);
+		return previous;
+	}
+
 	@Override
 	public int size() {
 		return size;
 	}
 
+	@Override
+	public Spliterator<E> spliterator() {
+		return new BucketSpliterator(0, -1, 0, 0, null, null);
+	}
+
+	/**
+	 * Returns a consistent order for objects which hash and compare equally.
+	 *
+	 * @param o1
+	 *            first object
+	 * @param o2
+	 *            second object
+	 * @return -1 or 1, never 0
+	 */
+	private static int tieBreakOrder(Object o1, Object o2) {
+		int comparison = 0;
+		if (o1 != null && o2 != null)
+			comparison = o1.getClass().getName()
+					.compareTo(o2.getClass().getName());
+		if (comparison == 0)
+			comparison = System.identityHashCode(o1) <= System
+					.identityHashCode(o2) ? -1 : 1;
+		return comparison;
+	}
+
+	/**
+	 * Replaces one subtree with another as a child of the first subtree's
+	 * parent.
+	 *
+	 * @param root
+	 *            root of tree
+	 * @param target
+	 *            subtree being replaced
+	 * @param replacement
+	 *            subtree taking its place, possibly null
+	 * @return new root of tree
+	 */
+	private static <E> TreeEntry<E> transplant(TreeEntry<E> root,
+			TreeEntry<E> target, TreeEntry<E> replacement) {
+		if (target.parent == null)
+			root = replacement;
+		else if (target == target.parent.left)
+			target.parent.left = replacement;
+		else
+			target.parent.right = replacement;
+		if (replacement != null)
+			replacement.parent = target.parent;
+		return root;
+	}
+
+	/**
+	 * Converts a chained bucket into a tree.
+	 *
+	 * @param index
+	 *            position in table
+	 */
+	private void treeify(int index) {
+		TreeEntry<E> root = null, last = null;
+		Entry<E> current;
+		for (current = table[index]; current != null; current = current.next) {
+			TreeEntry<E> entry = new TreeEntry<E>(current.data, current.hash);
+			entry.count = current.count;
+			entry.prev = last;
+			if (last != null)
+				last.next = entry;
+			last = entry;
+
+			if (root == null) {
+				root = entry;
+				root.red = false;
+				table[index] = root;
+			} else {
+				insert(root, entry);
+				root = recolorAdd(root, entry);
+			}
+		}
+		moveRootToFront(index, root);
+	}
+
+	/**
+	 * Converts a treeified bucket back into a chain.
+	 *
+	 * @param index
+	 *            position in table
+	 */
+	private void untreeify(int index) {
+		Entry<E> first = null, last = null;
+		Entry<E> current;
+		for (current = table[index]; current != null; current = current.next) {
+			Entry<E> entry = new Entry<E>(current.data, current.hash, null);
+			entry.count = current.count;
+			if (last == null)
+				first = entry;
+			else
+				last.next = entry;
+			last = entry;
+		}
+		table[index] = first;
+	}
+
 }
@@ -18,9 +18,70 @@ public class HashSet<E> extends HashMultiset<E> implements Set<E> {
 		super();
 	}
 
+	/**
+	 * Constructs HashSet with default capacity, default load, and given hash
+	 * strategy.
+	 * 
+	 * @param strategy
+	 *            maps hash codes onto table positions
+	 */
+	public HashSet(HashStrategy strategy) {
+		super(strategy);
+	}
+
+	/**
+	 * Constructs HashSet with default capacity, default load, given hash
+	 * strategy, and given rehashing mode.
+	 * 
+	 * @param strategy
+	 *            maps hash codes onto table positions
+	 * @param incremental
+	 *            if true, rehashing migrates buckets over many operations
+	 */
+	public HashSet(HashStrategy strategy, boolean incremental) {
+		super(strategy, incremental);
+	}
+
 	@Override
 	public boolean add(E obj) {
-		return !contains(obj) ? super.add(obj) : false;
+		return !contains(obj) ? super.add(obj, 1) : false;
+	}
+
+	/**
+	 * This implementation adds at most one occurrence.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		return Collections.addToSet(this, obj, occurrences);
+	}
+
+	@Override
+	public int count(Object obj) {
+		return contains(obj) ? 1 : 0;
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return super.remove(obj, 1);
+	}
+
+	/**
+	 * This implementation removes the only occurrence.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		return Collections.removeFromSet(this, obj, occurrences);
+	}
+
+	/**
+	 * This implementation accepts only counts of zero and one.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if count is greater than one
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		return Collections.setCountInSet(this, obj, count);
 	}
 
 }
@@ -0,0 +1,27 @@
+package collection;
+
+/**
+ * Defines how hash based collections map hash codes onto table positions.
+ * Implementations must be deterministic: equal hash codes and equal table
+ * lengths always produce the same index.
+ * 
+ * @author Jacob Malter
+ *
+ */
+public interface HashStrategy {
+
+	/** Allocation-free strategy used by hash based collections by default. */
+	HashStrategy DEFAULT = new MixingHashStrategy();
+
+	/**
+	 * Generates a position for indexing given a hash code.
+	 * 
+	 * @param hash
+	 *            hash code of the hashing subject
+	 * @param length
+	 *            number of positions in the table, greater than zero
+	 * @return index between zero (inclusive) and length (exclusive)
+	 */
+	int index(int hash, int length);
+
+}
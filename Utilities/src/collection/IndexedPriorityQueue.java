@@ -0,0 +1,353 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue implemented by a d-ary heap which indexes the position of
+ * every element, so elements are found in constant time and repositioned after
+ * their priority changes in logarithmic time. Elements are distinct.
+ *
+ * Priority comes from a comparator, which may read state outside the elements
+ * such as tentative distances kept by a shortest path search over a Graph.
+ * After changing that state, call decreaseKey or increaseKey for the element
+ * rather than adding it again. The head of the queue is the least element.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> {
+
+	/**
+	 * Iterator returning elements in heap layout order. Removal through this
+	 * iterator fills the emptied slot with the last node, which may sift up
+	 * into slots already visited; such nodes are returned after the heap has
+	 * been walked.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class HeapIterator implements Iterator<E> {
+
+		/** Nodes moved before pointer by removal, null until needed */
+		private ArrayDeque<Node<E>> forgetMeNot;
+		/** Node last returned, null if none or already removed */
+		private Node<E> lastReturned;
+		/** Was lastReturned taken from heap rather than forgetMeNot */
+		private boolean lastFromHeap;
+		/** Slots below pointer have been visited */
+		private int pointer;
+
+		@Override
+		public boolean hasNext() {
+			return pointer < size
+					|| (forgetMeNot != null && !forgetMeNot.isEmpty());
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastFromHeap = pointer < size;
+			lastReturned = lastFromHeap ? heap[pointer++] : forgetMeNot
+					.pollFirst();
+			return lastReturned.data;
+		}
+
+		/**
+		 * Removes the last returned element in logarithmic time. If the node
+		 * filling its slot stays there or sinks, the slot is visited again;
+		 * if it rises into visited slots, it is remembered instead.
+		 */
+		@Override
+		public void remove() {
+			if (lastReturned == null)
+				throw new IllegalStateException("next not called");
+			int i = lastReturned.index;
+			Node<E> moved = heap[size - 1];
+			removeNode(lastReturned);
+			lastReturned = null;
+			if (!lastFromHeap)
+				return;
+			if (moved.index < i) {
+				if (forgetMeNot == null)
+					forgetMeNot = new ArrayDeque<Node<E>>();
+				forgetMeNot.addLast(moved);
+			} else
+				pointer--;
+		}
+
+	}
+
+	/**
+	 * Element paired with its position in the heap.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Node<E> {
+
+		private final E data;
+		private int index;
+
+		private Node(E data, int index) {
+			this.data = data;
+			this.index = index;
+		}
+
+	}
+
+	/** Default number of children per heap node */
+	public static final int DEFAULT_ARITY = 4;
+
+	/** Number of children per heap node */
+	private final int arity;
+	/** Used to compare elements */
+	private final Comparator<? super E> comparator;
+	/** nodes */
+	private Node<E>[] heap;
+	/** Node of every element */
+	private final HashMap<E, Node<E>> index;
+	/** Number of elements */
+	private int size;
+
+	/**
+	 * Constructs an empty IndexedPriorityQueue given a comparator.
+	 *
+	 * @param comparator
+	 *            imposes ordering on elements
+	 */
+	public IndexedPriorityQueue(Comparator<? super E> comparator) {
+		this(comparator, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Constructs an empty IndexedPriorityQueue given a comparator and number of
+	 * children per heap node.
+	 *
+	 * @param comparator
+	 *            imposes ordering on elements
+	 * @param arity
+	 *            number of children per heap node
+	 * @throws IllegalArgumentException
+	 *             if comparator is null or arity is less than two
+	 */
+	@SuppressWarnings("unchecked")
+	public IndexedPriorityQueue(Comparator<? super E> comparator, int arity) {
+		if (comparator == null)
+			throw new IllegalArgumentException("Cannot use null comparator.");
+		if (arity < 2)
+			throw new IllegalArgumentException("Arity less than two.");
+		this.arity = arity;
+		this.comparator = comparator;
+		heap = (Node<E>[]) new Node<?>[Arrays.DEFAULT_CAPACITY];
+		index = new HashMap<E, Node<E>>();
+	}
+
+	/**
+	 * Adds an element which is not already present.
+	 *
+	 * @return true if obj was not already present
+	 */
+	@Override
+	public boolean add(E obj) {
+		if (obj == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		if (index.containsKey(obj))
+			return false;
+		ensureCapacity(size + 1);
+		Node<E> node = new Node<E>(obj, size);
+		heap[size++] = node;
+		index.put(obj, node);
+		siftUp(node);
+		return true;
+	}
+
+	/**
+	 * Returns number of children per heap node.
+	 *
+	 * @return number of children per heap node
+	 */
+	public int arity() {
+		return arity;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			heap[i] = null;
+		index.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns comparator used for ordering.
+	 *
+	 * @return comparator used for ordering
+	 */
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return index.containsKey(obj);
+	}
+
+	/**
+	 * Moves an element toward the head after its priority decreased.
+	 *
+	 * @param obj
+	 *            element whose priority decreased
+	 * @throws IllegalArgumentException
+	 *             if obj is not present
+	 */
+	public void decreaseKey(E obj) {
+		siftUp(nodeOf(obj));
+	}
+
+	@Override
+	public E element() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return heap[0].data;
+	}
+
+	/**
+	 * Creates room for new elements.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureCapacity(int minCapacity) {
+		int oldCapacity = heap.length;
+		if (minCapacity > oldCapacity) {
+			Node<E>[] copy = heap;
+			heap = (Node<E>[]) new Node<?>[oldCapacity * 2 + 1];
+			System.arraycopy(copy, 0, heap, 0, size);
+		}
+	}
+
+	/**
+	 * Moves an element away from the head after its priority increased.
+	 *
+	 * @param obj
+	 *            element whose priority increased
+	 * @throws IllegalArgumentException
+	 *             if obj is not present
+	 */
+	public void increaseKey(E obj) {
+		siftDown(nodeOf(obj));
+	}
+
+	/**
+	 * Returns an iterator over elements in no particular order.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new HeapIterator();
+	}
+
+	/**
+	 * Returns node of a present element.
+	 */
+	private Node<E> nodeOf(E obj) {
+		Node<E> node = index.get(obj);
+		if (node == null)
+			throw new IllegalArgumentException("Element not in queue.");
+		return node;
+	}
+
+	/**
+	 * Puts node at position i.
+	 */
+	private void place(Node<E> node, int i) {
+		heap[i] = node;
+		node.index = i;
+	}
+
+	@Override
+	public E remove() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return removeNode(heap[0]);
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		Node<E> node = index.get(obj);
+		if (node == null)
+			return false;
+		removeNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes node and fills its place with the last node.
+	 *
+	 * @param node
+	 *            removed node
+	 * @return element of removed node
+	 */
+	private E removeNode(Node<E> node) {
+		index.remove(node.data);
+		Node<E> last = heap[--size];
+		heap[size] = null;
+		if (last != node) {
+			place(last, node.index);
+			siftDown(last);
+			siftUp(last);
+		}
+		return node.data;
+	}
+
+	/**
+	 * Moves node down until no child precedes it.
+	 *
+	 * @param node
+	 *            moved node
+	 */
+	private void siftDown(Node<E> node) {
+		int i = node.index;
+		for (int first = arity * i + 1; first < size; first = arity * i + 1) {
+			int best = first;
+			int last = Math.min(first + arity, size);
+			for (int child = first + 1; child < last; child++)
+				if (comparator.compare(heap[child].data, heap[best].data) < 0)
+					best = child;
+			if (comparator.compare(heap[best].data, node.data) >= 0)
+				break;
+			place(heap[best], i);
+			i = best;
+		}
+		place(node, i);
+	}
+
+	/**
+	 * Moves node up until its parent does not follow it.
+	 *
+	 * @param node
+	 *            moved node
+	 */
+	private void siftUp(Node<E> node) {
+		int i = node.index;
+		while (i > 0) {
+			int parent = (i - 1) / arity;
+			if (comparator.compare(node.data, heap[parent].data) >= 0)
+				break;
+			place(heap[parent], i);
+			i = parent;
+		}
+		place(node, i);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+}
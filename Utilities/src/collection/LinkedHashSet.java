@@ -19,9 +19,20 @@ public class LinkedHashSet<E> extends HashSet<E> {
 	/**
 	 * Constructs LinkedHashSet with default capacity and default load.
 	 */
-	@SuppressWarnings("unchecked")
 	public LinkedHashSet() {
-		super();
+		this(HashStrategy.DEFAULT);
+	}
+
+	/**
+	 * Constructs LinkedHashSet with default capacity, default load, and given
+	 * hash strategy.
+	 * 
+	 * @param strategy
+	 *            maps hash codes onto table positions
+	 */
+	@SuppressWarnings("unchecked")
+	public LinkedHashSet(HashStrategy strategy) {
+		super(strategy);
 		linkedEntries = (Collection<E>) Collections.ITERABLE_AND_REMOVE_COLLECTION;
 		// suppression safe since only elements of type E will be inserted
 	}
@@ -359,7 +359,7 @@ public class LinkedList<E> extends AbstractDequeList<E> {
 
 		if (index == 0)
 			return delinkHead();
-		else if (index == size)
+		else if (index == size - 1)
 			return delinkTail();
 		else {
 			Node<E> current = head;
@@ -47,6 +47,17 @@ public class LinkedTreeSet<E extends Comparable<? super E>> extends TreeSet<E> {
 		return super.add(obj);
 	}
 
+	/**
+	 * This implementation adds elements one at a time to record their order.
+	 */
+	@Override
+	public boolean addAllSorted(Iterator<? extends E> elements) {
+		boolean changed = false;
+		while (elements.hasNext())
+			changed = add(elements.next()) | changed;
+		return changed;
+	}
+
 	@Override
 	public void clear() {
 		linkedEntries.clear();
@@ -3,6 +3,9 @@
  */
 package collection;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 /**
  * Elements have a position. Adds new behavior needed to process elements with
  * positions. Order does matter, and replacement is allowed. Includes a method
@@ -106,6 +109,17 @@ public interface List<E> extends Collection<E> {
 	 */
 	E set(int index, E obj);
 
+	/**
+	 * Creates an ordered spliterator over a list. This implementation wraps
+	 * iterator; lists with constant time get should split by index instead.
+	 * 
+	 * @return ordered, sized spliterator over elements
+	 */
+	@Override
+	default Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+	}
+
 	/**
 	 * Creates sublist from main list using parameter indexes for start and end.
 	 * 
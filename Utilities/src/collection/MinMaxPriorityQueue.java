@@ -0,0 +1,493 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Double ended priority queue implemented by a min-max heap. Levels of the
+ * heap alternate between minimum levels, starting at the root, and maximum
+ * levels. Each element on a minimum level is the least in its subtree and each
+ * element on a maximum level is the greatest, so both ends are found in
+ * constant time and removed in logarithmic time.
+ *
+ * Like ArrayPriorityQueue, the head of the queue is the greatest element. An
+ * optional maximum size turns the queue into a top-K buffer: adding to a full
+ * queue evicts the least element, or rejects the added one if it is no
+ * greater.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class MinMaxPriorityQueue<E extends Comparable<? super E>> extends
+		AbstractQueue<E> implements Navigable<E> {
+
+	/**
+	 * Iterator draining a copy of the heap, so this queue is never rearranged.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class CopyIterator implements Iterator<E> {
+
+		private boolean ascending;
+		private E last;
+		private MinMaxPriorityQueue<E> remaining;
+
+		private CopyIterator(boolean ascending) {
+			this.ascending = ascending;
+			remaining = copy();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !remaining.isEmpty();
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			last = ascending ? remaining.pollMinimum() : remaining
+					.pollMaximum();
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null)
+				throw new IllegalStateException("next not called");
+			MinMaxPriorityQueue.this.remove(last);
+			last = null;
+		}
+
+	}
+
+	/**
+	 * Iterator returning elements in heap layout order.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class UnorderedIterator implements Iterator<E> {
+
+		private int pointer;
+
+		@Override
+		public boolean hasNext() {
+			return pointer < size;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return heap[pointer++];
+		}
+
+	}
+
+	/** Used to compare elements */
+	private final Comparator<? super E> comparator;
+	/** elements */
+	private E[] heap;
+	/** Most elements retained */
+	private final int maximumSize;
+	/** Number of elements */
+	private int size;
+
+	/**
+	 * Constructs an empty unbounded MinMaxPriorityQueue.
+	 */
+	public MinMaxPriorityQueue() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty unbounded MinMaxPriorityQueue given a comparator.
+	 *
+	 * @param comparator
+	 *            imposes ordering on elements
+	 */
+	public MinMaxPriorityQueue(Comparator<? super E> comparator) {
+		this(comparator, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructs an empty MinMaxPriorityQueue given a comparator which retains
+	 * at most maximumSize of the greatest elements added.
+	 *
+	 * @param comparator
+	 *            imposes ordering on elements
+	 * @param maximumSize
+	 *            most elements retained
+	 */
+	@SuppressWarnings("unchecked")
+	public MinMaxPriorityQueue(Comparator<? super E> comparator,
+			int maximumSize) {
+		if (maximumSize < 1)
+			throw new IllegalArgumentException("Maximum size less than one.");
+		this.comparator = comparator;
+		this.maximumSize = maximumSize;
+		heap = (E[]) new Comparable<?>[Math.min(Arrays.DEFAULT_CAPACITY,
+				maximumSize)];
+		// suppression safe since only elements of type E will be inserted
+	}
+
+	/**
+	 * Constructs an empty MinMaxPriorityQueue which retains at most
+	 * maximumSize of the greatest elements added.
+	 *
+	 * @param maximumSize
+	 *            most elements retained
+	 */
+	public MinMaxPriorityQueue(int maximumSize) {
+		this(null, maximumSize);
+	}
+
+	/**
+	 * Adds an element. If this queue is full, the least element is evicted, or
+	 * obj is rejected if it is not greater than the least element.
+	 *
+	 * @return true if obj was retained
+	 */
+	@Override
+	public boolean add(E obj) {
+		if (obj == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		if (size == maximumSize) {
+			if (compare(comparator(), obj, heap[0]) <= 0)
+				return false;
+			heap[0] = obj;
+			trickleDown(0);
+			return true;
+		}
+		ensureCapacity(size + 1);
+		heap[size] = obj;
+		pushUp(size++);
+		return true;
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return search(0, e, true, true, null);
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			heap[i] = null;
+		size = 0;
+	}
+
+	/**
+	 * Returns comparator used for ordering.
+	 *
+	 * @return comparator used for ordering
+	 */
+	@Override
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return indexOf(obj) > -1;
+	}
+
+	/**
+	 * Returns an unbounded copy of this queue.
+	 * 
+	 * @return copy with the same heap layout
+	 */
+	private MinMaxPriorityQueue<E> copy() {
+		MinMaxPriorityQueue<E> copy = new MinMaxPriorityQueue<E>(comparator);
+		copy.ensureCapacity(size);
+		System.arraycopy(heap, 0, copy.heap, 0, size);
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Returns an iterator over elements from least to greatest. Creation copies
+	 * the heap in linear time, and this queue is never rearranged.
+	 */
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new CopyIterator(true);
+	}
+
+	@Override
+	public E element() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return heap[maximumIndex()];
+	}
+
+	/**
+	 * Creates room for new elements.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureCapacity(int minCapacity) {
+		int oldCapacity = heap.length;
+		if (minCapacity > oldCapacity) {
+			int newCapacity = (int) Math.min(
+					Math.max(oldCapacity * 2L + 1, minCapacity), maximumSize);
+			E[] copy = heap;
+			heap = (E[]) new Comparable<?>[newCapacity];
+			System.arraycopy(copy, 0, heap, 0, size);
+		}
+	}
+
+	@Override
+	public E floor(E e) {
+		return search(0, e, false, true, null);
+	}
+
+	/**
+	 * Returns index of the grandparent of index. PRECONDITION: index greater
+	 * than two
+	 */
+	private static int grandparent(int index) {
+		return ((index - 1) / 2 - 1) / 2;
+	}
+
+	@Override
+	public E higher(E e) {
+		return search(0, e, true, false, null);
+	}
+
+	/**
+	 * Returns index of an element equal to obj, -1 if none.
+	 */
+	private int indexOf(Object obj) {
+		if (obj != null)
+			for (int i = 0; i < size; i++)
+				if (obj.equals(heap[i]))
+					return i;
+		return -1;
+	}
+
+	/**
+	 * Returns whether index lies on a minimum level.
+	 */
+	private static boolean isMinimumLevel(int index) {
+		return ((31 - Integer.numberOfLeadingZeros(index + 1)) & 1) == 0;
+	}
+
+	/**
+	 * Returns an iterator over elements from greatest to least. Creation copies
+	 * the heap in linear time, and this queue is never rearranged.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new CopyIterator(false);
+	}
+
+	@Override
+	public E lower(E e) {
+		return search(0, e, false, false, null);
+	}
+
+	@Override
+	public E maximum() {
+		return size == 0 ? null : heap[maximumIndex()];
+	}
+
+	/**
+	 * Returns index of greatest element. PRECONDITION: not empty
+	 */
+	private int maximumIndex() {
+		if (size < 3)
+			return size - 1;
+		return compare(comparator(), heap[1], heap[2]) >= 0 ? 1 : 2;
+	}
+
+	/**
+	 * Returns most elements retained.
+	 *
+	 * @return maximum size, Integer.MAX_VALUE if unbounded
+	 */
+	public int maximumSize() {
+		return maximumSize;
+	}
+
+	@Override
+	public E minimum() {
+		return size == 0 ? null : heap[0];
+	}
+
+	/**
+	 * Returns whether a precedes b in the order of the given level type.
+	 */
+	private boolean precedes(E a, E b, boolean minimumLevel) {
+		int comparison = compare(comparator(), a, b);
+		return minimumLevel ? comparison < 0 : comparison > 0;
+	}
+
+	/**
+	 * Returns and removes greatest element.
+	 *
+	 * @return greatest element, null if empty
+	 */
+	public E pollMaximum() {
+		return size == 0 ? null : removeAt(maximumIndex());
+	}
+
+	/**
+	 * Returns and removes least element.
+	 *
+	 * @return least element, null if empty
+	 */
+	public E pollMinimum() {
+		return size == 0 ? null : removeAt(0);
+	}
+
+	/**
+	 * Moves the element at index up until it is ordered with its ancestors.
+	 *
+	 * @param index
+	 *            position of moved element
+	 */
+	private void pushUp(int index) {
+		if (index == 0)
+			return;
+		boolean minimumLevel = isMinimumLevel(index);
+		int parent = (index - 1) / 2;
+		if (precedes(heap[parent], heap[index], minimumLevel)) {
+			Arrays.swap(heap, parent, index);
+			index = parent;
+			minimumLevel = !minimumLevel;
+		}
+		while (index > 2
+				&& precedes(heap[index], heap[grandparent(index)], minimumLevel)) {
+			Arrays.swap(heap, grandparent(index), index);
+			index = grandparent(index);
+		}
+	}
+
+	@Override
+	public E remove() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return removeAt(maximumIndex());
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		int index = indexOf(obj);
+		if (index < 0)
+			return false;
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Removes element at index. The hole first moves up through grandparents,
+	 * which keeps them ordered, to the root or a child of the root. The last
+	 * element then fills it and trickles down, needing no upward pass since
+	 * the root is the least element and its children the greatest.
+	 *
+	 * @param index
+	 *            position of removed element
+	 * @return removed element
+	 */
+	private E removeAt(int index) {
+		E result = heap[index];
+		while (index > 2) {
+			heap[index] = heap[grandparent(index)];
+			index = grandparent(index);
+		}
+		E last = heap[--size];
+		heap[size] = null;
+		if (index < size) {
+			heap[index] = last;
+			trickleDown(index);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the best element in the subtree at index which is greater (less
+	 * if not above) than e, or equal if inclusive. A minimum level element
+	 * which qualifies ends an upward search of its subtree, and a maximum level
+	 * element which does not qualify rules out its subtree; the reverse holds
+	 * for downward searches.
+	 *
+	 * @param index
+	 *            root of searched subtree
+	 * @param e
+	 *            searched element
+	 * @param above
+	 *            whether results are greater than e
+	 * @param inclusive
+	 *            whether elements equal to e qualify
+	 * @param best
+	 *            best result found so far, null if none
+	 * @return best result in subtree and best, null if none
+	 */
+	private E search(int index, E e, boolean above, boolean inclusive, E best) {
+		if (index >= size)
+			return best;
+		E element = heap[index];
+		int comparison = compare(comparator(), element, e);
+		boolean qualifies = (above ? comparison > 0 : comparison < 0)
+				|| (inclusive && comparison == 0);
+		boolean extreme = isMinimumLevel(index) == above;
+		if (qualifies
+				&& (best == null || compare(comparator(), element, best) < 0 == above))
+			best = element;
+		if (extreme ? qualifies : !qualifies)
+			return best;
+		best = search(2 * index + 1, e, above, inclusive, best);
+		return search(2 * index + 2, e, above, inclusive, best);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Moves the element at index down until it is ordered with its
+	 * descendants.
+	 *
+	 * @param index
+	 *            position of moved element
+	 */
+	private void trickleDown(int index) {
+		boolean minimumLevel = isMinimumLevel(index);
+		while (2 * index + 1 < size) {
+			// best among children and grandchildren
+			int best = 2 * index + 1;
+			int last = Math.min(4 * index + 6, size - 1);
+			for (int i = best + 1; i <= last; i = i == 2 * index + 2 ? 4 * index + 3
+					: i + 1)
+				if (precedes(heap[i], heap[best], minimumLevel))
+					best = i;
+			if (!precedes(heap[best], heap[index], minimumLevel))
+				return;
+			Arrays.swap(heap, index, best);
+			if (best <= 2 * index + 2)
+				return;
+			int parent = (best - 1) / 2;
+			if (precedes(heap[parent], heap[best], minimumLevel))
+				Arrays.swap(heap, parent, best);
+			index = best;
+		}
+	}
+
+	/**
+	 * Returns an iterator over elements in no particular order. Cheaper than
+	 * iterator when order does not matter. Behavior is undefined if this queue
+	 * is changed during iteration.
+	 *
+	 * @return iterator over elements in heap layout order
+	 */
+	public Iterator<E> unorderedIterator() {
+		return new UnorderedIterator();
+	}
+
+}
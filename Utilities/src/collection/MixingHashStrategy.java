@@ -0,0 +1,39 @@
+package collection;
+
+/**
+ * Hash strategy which scrambles hash codes with the Murmur3 finalizer and maps
+ * them onto a table by multiplication rather than division. No objects are
+ * created for any call.
+ * 
+ * @author Jacob Malter
+ *
+ */
+public class MixingHashStrategy implements HashStrategy {
+
+	/**
+	 * Scrambles bits of a hash code so that every input bit affects every
+	 * output bit. Murmur3 32-bit finalizer.
+	 * 
+	 * @param hash
+	 *            hash code being mixed
+	 * @return mixed hash code
+	 */
+	public static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * This implementation scales the unsigned mixed hash into the range of the
+	 * table, which works for prime and power of two lengths alike.
+	 */
+	@Override
+	public int index(int hash, int length) {
+		return (int) (((mix(hash) & 0xffffffffL) * length) >>> 32);
+	}
+
+}
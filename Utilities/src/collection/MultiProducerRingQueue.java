@@ -0,0 +1,153 @@
+package collection;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free queue for any number of producer threads and one consumer
+ * thread. Producers claim slots by compare and set on tail and then fill them,
+ * so the consumer may briefly wait on a claimed slot which is still empty.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class MultiProducerRingQueue<E> extends AbstractRingQueue<E> {
+
+	/**
+	 * Constructs an empty MultiProducerRingQueue.
+	 *
+	 * @param capacity
+	 *            most elements held, rounded up to a power of two
+	 */
+	public MultiProducerRingQueue(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * This implementation stops early at a claimed slot which is still empty
+	 * rather than waiting for its producer.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public int drain(Consumer<? super E> consumer, int limit) {
+		checkLimit(limit);
+		int count = 0;
+		long head = sequences.get(HEAD);
+		while (count < limit) {
+			Object element = buffer.get((int) head & mask);
+			if (element == null)
+				break;
+			buffer.lazySet((int) head & mask, null);
+			sequences.lazySet(HEAD, ++head);
+			if (element != SKIPPED) {
+				count++;
+				consumer.accept((E) element);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * This implementation claims all of its slots with one compare and set. If
+	 * supplier fails, the slots it did not fill are marked for the consumer to
+	 * skip.
+	 */
+	@Override
+	public int fill(Supplier<? extends E> supplier, int limit) {
+		checkLimit(limit);
+		long tail;
+		int count;
+		do {
+			tail = sequences.get(TAIL);
+			count = (int) Math.min(limit,
+					capacity() - (tail - sequences.get(HEAD)));
+			if (count <= 0)
+				return 0;
+		} while (!sequences.compareAndSet(TAIL, tail, tail + count));
+		int filled = 0;
+		try {
+			for (; filled < count; filled++) {
+				E obj = supplier.get();
+				if (obj == null)
+					throw new IllegalArgumentException(
+							"Cannot add null object.");
+				buffer.lazySet((int) (tail + filled) & mask, obj);
+			}
+		} finally {
+			for (int i = filled; i < count; i++)
+				buffer.lazySet((int) (tail + i) & mask, SKIPPED);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean offer(E obj) {
+		if (obj == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		long tail;
+		do {
+			tail = sequences.get(TAIL);
+			if (tail - sequences.get(HEAD) > mask)
+				return false;
+		} while (!sequences.compareAndSet(TAIL, tail, tail + 1));
+		buffer.lazySet((int) tail & mask, obj);
+		return true;
+	}
+
+	/**
+	 * Returns the element at head without removing it. If a producer has
+	 * claimed the head slot but not yet filled it, this may wait briefly for
+	 * that producer to finish.
+	 *
+	 * @return element at head, null if empty
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		return (E) take(false);
+	}
+
+	/**
+	 * Removes and returns the element at head. If a producer has claimed the
+	 * head slot but not yet filled it, this may wait briefly for that producer
+	 * to finish.
+	 *
+	 * @return element at head, null if empty
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E poll() {
+		return (E) take(true);
+	}
+
+	/**
+	 * Returns the element at head, waiting for its producer if its slot was
+	 * claimed but not yet filled. Skipped slots are removed on the way.
+	 *
+	 * @param remove
+	 *            whether to remove the returned element
+	 * @return element at head, null if empty
+	 */
+	private Object take(boolean remove) {
+		while (true) {
+			long head = sequences.get(HEAD);
+			int index = (int) head & mask;
+			Object element = buffer.get(index);
+			if (element == null) {
+				if (head == sequences.get(TAIL))
+					return null;
+				while ((element = buffer.get(index)) == null)
+					Thread.yield(); // producer between claim and store
+			}
+			if (element != SKIPPED && !remove)
+				return element;
+			buffer.lazySet(index, null);
+			sequences.lazySet(HEAD, head + 1);
+			if (element != SKIPPED)
+				return element;
+		}
+	}
+
+}
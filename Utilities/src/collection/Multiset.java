@@ -15,6 +15,84 @@ package collection;
  */
 public interface Multiset<E> extends Collection<E> {
 
+	/**
+	 * An element of a multiset paired with the number of times it occurs.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	public interface Entry<E> {
+
+		/**
+		 * Two entries are equal if their elements are equal and their counts
+		 * are equal.
+		 * 
+		 * @param obj
+		 *            Another entry compared to entry
+		 * @return true if equal, false otherwise
+		 */
+		@Override
+		boolean equals(Object obj);
+
+		/**
+		 * Returns number of occurrences of element.
+		 * 
+		 * @return number of occurrences, at least one
+		 */
+		int getCount();
+
+		/**
+		 * Returns element of this entry.
+		 * 
+		 * @return element
+		 */
+		E getElement();
+
+		/**
+		 * Generates a hashcode from element and count.
+		 * 
+		 * @return int hashcode
+		 */
+		@Override
+		int hashCode();
+
+	}
+
+	/**
+	 * Adds a number of occurrences of object parameter to multiset.
+	 * Implementations which store one entry per occurrence may take time
+	 * proportional to occurrences; TreeMultiset does so unless constructed in
+	 * compressed mode.
+	 * 
+	 * @param obj
+	 *            object added into multiset
+	 * @param occurrences
+	 *            number of occurrences added
+	 * @return true if multiset changed
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	boolean add(E obj, int occurrences);
+
+	/**
+	 * Returns number of occurrences of object parameter in multiset.
+	 * 
+	 * @param obj
+	 *            object counted
+	 * @return number of occurrences, zero if absent
+	 */
+	int count(Object obj);
+
+	/**
+	 * Returns a view of distinct elements paired with their counts. The view
+	 * does not support adding entries.
+	 * 
+	 * @return set of entries
+	 */
+	Set<Entry<E>> entrySet();
+
 	/**
 	 * Equivalence relation must be reflexive (a,a), symmetric (a,b)-->(b,a),
 	 * and transitive ((a,b)^(b,c))-->(a,c). Equals acts regardless of element
@@ -36,4 +114,34 @@ public interface Multiset<E> extends Collection<E> {
 	@Override
 	int hashCode();
 
+	/**
+	 * Removes a number of occurrences of object parameter from multiset. If
+	 * the multiset holds fewer occurrences, all are removed. Implementations
+	 * which store one entry per occurrence may take time proportional to
+	 * occurrences; TreeMultiset does so unless constructed in compressed mode.
+	 * 
+	 * @param obj
+	 *            object removed from multiset
+	 * @param occurrences
+	 *            number of occurrences removed
+	 * @return true if multiset changed
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	boolean remove(Object obj, int occurrences);
+
+	/**
+	 * Adds or removes occurrences of object parameter until multiset holds a
+	 * given number of them. Costs as much as the add or remove it performs.
+	 * 
+	 * @param obj
+	 *            object whose count is assigned
+	 * @param count
+	 *            number of occurrences afterward
+	 * @return number of occurrences before
+	 * @throws IllegalArgumentException
+	 *             if count is negative
+	 */
+	int setCount(E obj, int count);
+
 }
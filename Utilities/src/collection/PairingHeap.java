@@ -0,0 +1,501 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue implemented by a pairing heap. Each node keeps its leftmost
+ * child and its next sibling, so adding an element and melding two heaps link
+ * two roots in constant time. Removing the root pairs its children left to
+ * right and links the pairs right to left, in amortized logarithmic time.
+ *
+ * Like ArrayPriorityQueue, the head of the queue is the greatest element.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class PairingHeap<E extends Comparable<? super E>> extends
+		AbstractQueue<E> implements Navigable<E> {
+
+	/**
+	 * Iterator returning greatest elements first without changing the heap.
+	 * Keeps a frontier heap of nodes whose parents were already returned.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class HeapIterator implements Iterator<E> {
+
+		/** Max-heap of nodes not yet returned */
+		private Node<E>[] frontier;
+		private Node<E> last;
+		/** Number of nodes in frontier */
+		private int length;
+
+		@SuppressWarnings("unchecked")
+		private HeapIterator() {
+			frontier = (Node<E>[]) new Node<?>[8];
+			if (root != null)
+				frontier[length++] = root;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return length > 0;
+		}
+
+		/**
+		 * Returns whether the node at i precedes the node at j.
+		 */
+		private boolean higher(int i, int j) {
+			return compare(comparator(), frontier[i].data, frontier[j].data) > 0;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			last = frontier[0];
+			frontier[0] = frontier[--length];
+			frontier[length] = null;
+			for (int i = 0, child = 1; child < length; i = child, child = 2 * i + 1) {
+				if (child + 1 < length && higher(child + 1, child))
+					child++;
+				if (!higher(child, i))
+					break;
+				swap(i, child);
+			}
+			for (Node<E> child = last.child; child != null; child = child.sibling)
+				push(child);
+			return last.data;
+		}
+
+		/**
+		 * Adds a node to frontier.
+		 *
+		 * @param node
+		 *            child of the last returned node
+		 */
+		@SuppressWarnings("unchecked")
+		private void push(Node<E> node) {
+			if (length == frontier.length) {
+				Node<E>[] copy = frontier;
+				frontier = (Node<E>[]) new Node<?>[length * 2];
+				System.arraycopy(copy, 0, frontier, 0, length);
+			}
+			frontier[length] = node;
+			for (int i = length++; i > 0 && higher(i, (i - 1) / 2); i = (i - 1) / 2)
+				swap(i, (i - 1) / 2);
+		}
+
+		@Override
+		public void remove() {
+			if (last == null)
+				throw new IllegalStateException("next not called");
+			if (last == root) {
+				// only the root was returned, so the new root replaces frontier
+				removeNode(root);
+				while (length > 0)
+					frontier[--length] = null;
+				if (root != null)
+					frontier[length++] = root;
+			} else
+				// children already on frontier keep their structure
+				splice(last);
+			last = null;
+		}
+
+		private void swap(int i, int j) {
+			Node<E> temp = frontier[i];
+			frontier[i] = frontier[j];
+			frontier[j] = temp;
+		}
+
+	}
+
+	/**
+	 * Node of a pairing heap.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Node<E> {
+
+		/** Leftmost child */
+		private Node<E> child;
+		private final E data;
+		/** Previous sibling, or parent if leftmost child */
+		private Node<E> prev;
+		/** Next sibling */
+		private Node<E> sibling;
+
+		private Node(E data) {
+			this.data = data;
+		}
+
+	}
+
+	/** Used to compare elements */
+	private final Comparator<? super E> comparator;
+	/** Greatest element */
+	private Node<E> root;
+	/** Number of elements */
+	private int size;
+
+	/**
+	 * Constructs an empty PairingHeap.
+	 */
+	public PairingHeap() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty PairingHeap given a comparator.
+	 *
+	 * @param comparator
+	 *            imposes ordering on elements
+	 */
+	public PairingHeap(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+	}
+
+	@Override
+	public boolean add(E obj) {
+		if (obj == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		root = link(root, new Node<E>(obj));
+		size++;
+		return true;
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return search(e, true, true);
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+
+	/**
+	 * Returns comparator used for ordering.
+	 *
+	 * @return comparator used for ordering
+	 */
+	@Override
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return find(obj) != null;
+	}
+
+	/**
+	 * Returns an iterator over elements from least to greatest. Creation sorts
+	 * a copy of the elements, leaving this heap unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<E> descendingIterator() {
+		E[] sorted = (E[]) new Comparable<?>[size];
+		int i = 0;
+		for (Node<E> node = root; node != null; node = next(node, true))
+			sorted[i++] = node.data;
+		Arrays.mergeSort(sorted, (o1, o2) -> compare(comparator(), o1, o2));
+		return new Iterator<E>() {
+
+			private int pointer;
+
+			@Override
+			public boolean hasNext() {
+				return pointer < sorted.length;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return sorted[pointer++];
+			}
+
+		};
+	}
+
+	@Override
+	public E element() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return root.data;
+	}
+
+	/**
+	 * Returns node of an element equal to obj, null if none.
+	 */
+	private Node<E> find(Object obj) {
+		if (obj != null)
+			for (Node<E> node = root; node != null; node = next(node, true))
+				if (obj.equals(node.data))
+					return node;
+		return null;
+	}
+
+	@Override
+	public E floor(E e) {
+		return search(e, false, true);
+	}
+
+	@Override
+	public E higher(E e) {
+		return search(e, true, false);
+	}
+
+	/**
+	 * Returns an iterator over elements from greatest to least. Creation takes
+	 * constant time, and this heap is never rearranged except by the
+	 * iterator's own remove.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new HeapIterator();
+	}
+
+	/**
+	 * Makes the lesser of two roots the leftmost child of the greater.
+	 *
+	 * @param first
+	 *            root, possibly null
+	 * @param second
+	 *            root, possibly null
+	 * @return greater root, detached from any siblings, null if both are null
+	 */
+	private Node<E> link(Node<E> first, Node<E> second) {
+		if (first == null || second != null
+				&& compare(comparator(), first.data, second.data) < 0) {
+			Node<E> temp = first;
+			first = second;
+			second = temp;
+		}
+		if (first == null)
+			return null;
+		first.prev = null;
+		first.sibling = null;
+		if (second == null)
+			return first;
+		second.prev = first;
+		second.sibling = first.child;
+		if (first.child != null)
+			first.child.prev = second;
+		first.child = second;
+		return first;
+	}
+
+	@Override
+	public E lower(E e) {
+		return search(e, false, false);
+	}
+
+	@Override
+	public E maximum() {
+		return root == null ? null : root.data;
+	}
+
+	/**
+	 * Moves every element of another heap into this heap in constant time,
+	 * leaving the other heap empty.
+	 *
+	 * @param other
+	 *            heap being emptied into this heap
+	 * @throws IllegalArgumentException
+	 *             if other is this heap or orders elements by a different
+	 *             comparator
+	 */
+	public void meld(PairingHeap<E> other) {
+		if (other == this)
+			throw new IllegalArgumentException("Cannot meld heap with itself.");
+		if (other.comparator != comparator)
+			throw new IllegalArgumentException(
+					"Cannot meld heaps with different comparators.");
+		root = link(root, other.root);
+		size += other.size;
+		other.clear();
+	}
+
+	/**
+	 * Returns least element. Takes linear time since any node without children
+	 * may hold it.
+	 */
+	@Override
+	public E minimum() {
+		E min = null;
+		for (Node<E> node = root; node != null; node = next(node, true))
+			if (node.child == null
+					&& (min == null || compare(comparator(), node.data, min) < 0))
+				min = node.data;
+		return min;
+	}
+
+	/**
+	 * Returns the node after node in preorder, skipping its descendants unless
+	 * descend is true. Climbs through prev links, so no stack is needed.
+	 *
+	 * @param node
+	 *            current node
+	 * @param descend
+	 *            whether to visit descendants of node
+	 * @return next node, null if none
+	 */
+	private Node<E> next(Node<E> node, boolean descend) {
+		if (descend && node.child != null)
+			return node.child;
+		while (node != null) {
+			if (node.sibling != null)
+				return node.sibling;
+			while (node.prev != null && node.prev.child != node)
+				node = node.prev;
+			node = node.prev;
+		}
+		return null;
+	}
+
+	/**
+	 * Links every sibling starting at first into one tree. Pairs are linked
+	 * left to right, then the pairs are linked right to left.
+	 *
+	 * @param first
+	 *            leftmost sibling, possibly null
+	 * @return root of linked tree, null if first is null
+	 */
+	private Node<E> pair(Node<E> first) {
+		// pairs are stacked through sibling links, last pair on top
+		Node<E> pairs = null;
+		while (first != null) {
+			Node<E> second = first.sibling;
+			Node<E> rest = second == null ? null : second.sibling;
+			Node<E> linked = link(first, second);
+			linked.sibling = pairs;
+			pairs = linked;
+			first = rest;
+		}
+		Node<E> result = null;
+		while (pairs != null) {
+			Node<E> below = pairs.sibling;
+			result = link(pairs, result);
+			pairs = below;
+		}
+		return result;
+	}
+
+	@Override
+	public E remove() {
+		if (isEmpty())
+			throw new NoSuchElementException("No elements in container");
+		return removeNode(root);
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		Node<E> node = find(obj);
+		if (node == null)
+			return false;
+		removeNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes a node, linking its children into one tree which replaces it.
+	 *
+	 * @param node
+	 *            removed node
+	 * @return element of removed node
+	 */
+	private E removeNode(Node<E> node) {
+		if (node == root)
+			root = pair(node.child);
+		else {
+			if (node.prev.child == node)
+				node.prev.child = node.sibling;
+			else
+				node.prev.sibling = node.sibling;
+			if (node.sibling != null)
+				node.sibling.prev = node.prev;
+			root = link(root, pair(node.child));
+		}
+		node.child = node.prev = node.sibling = null;
+		size--;
+		return node.data;
+	}
+
+	/**
+	 * Returns the element nearest e which is greater (less if not above), or
+	 * equal if inclusive. Every node is at least its descendants, so subtrees
+	 * below a lesser node are skipped when searching upward, and subtrees below
+	 * a qualifying node are skipped when searching downward.
+	 *
+	 * @param e
+	 *            searched element
+	 * @param above
+	 *            whether results are greater than e
+	 * @param inclusive
+	 *            whether elements equal to e qualify
+	 * @return nearest qualifying element, null if none
+	 */
+	private E search(E e, boolean above, boolean inclusive) {
+		E best = null;
+		Node<E> node = root;
+		while (node != null) {
+			int comparison = compare(comparator(), node.data, e);
+			boolean qualifies = (above ? comparison > 0 : comparison < 0)
+					|| (inclusive && comparison == 0);
+			if (qualifies
+					&& (best == null || compare(comparator(), node.data, best) < 0 == above))
+				best = node.data;
+			node = next(node, above == qualifies);
+		}
+		return best;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes a node other than the root by putting its children in its place
+	 * among its siblings. Its children are no greater than its parent, so the
+	 * heap stays ordered.
+	 *
+	 * @param node
+	 *            removed node
+	 */
+	private void splice(Node<E> node) {
+		Node<E> replacement = node.sibling;
+		if (node.child != null) {
+			Node<E> last = node.child;
+			while (last.sibling != null)
+				last = last.sibling;
+			last.sibling = node.sibling;
+			if (node.sibling != null)
+				node.sibling.prev = last;
+			replacement = node.child;
+		} else if (node.sibling != null)
+			node.sibling.prev = node.prev;
+		if (replacement != null)
+			replacement.prev = node.prev;
+		if (node.prev.child == node)
+			node.prev.child = replacement;
+		else
+			node.prev.sibling = replacement;
+		node.child = node.prev = node.sibling = null;
+		size--;
+	}
+
+}
@@ -0,0 +1,800 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable ordered multiset backed by a persistent red-black tree. Equal
+ * elements share one node which counts them.
+ *
+ * Instead of changing, plus and minus return a new version sharing all but
+ * O(log n) nodes with the old one, which stays valid. Versions can therefore be
+ * read from any number of threads without locking or copying. Methods of
+ * Collection which would change this multiset throw
+ * UnsupportedOperationException.
+ *
+ * Insertion follows Okasaki's balancing and deletion follows Kahrs'.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class PersistentTreeMultiset<E extends Comparable<? super E>> extends
+		AbstractMultiset<E> implements Navigable<E> {
+
+	/**
+	 * Immutable node with children, data, and count. Doubles as an entry of
+	 * entrySet.
+	 *
+	 * @author Jacob Malter
+	 *
+	 * @param <E>
+	 *            The type of the elements stored in this collection.
+	 */
+	private static class Node<E> extends AbstractEntry<E> {
+
+		/** Number of elements equal to data */
+		private final int count;
+		private final E data;
+		private final boolean isBlack;
+		private final Node<E> left, right;
+		/** Number of elements in subtree rooted here */
+		private final int size;
+
+		private Node(E data, int count, boolean isBlack, Node<E> left,
+				Node<E> right) {
+			this.count = count;
+			this.data = data;
+			this.isBlack = isBlack;
+			this.left = left;
+			this.right = right;
+			this.size = count + sizeOf(left) + sizeOf(right);
+		}
+
+		@Override
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public E getElement() {
+			return data;
+		}
+
+	}
+
+	/**
+	 * In order iterator over nodes of one version.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class NodeIterator implements Iterator<Node<E>> {
+
+		private boolean movesForward;
+		private Stack<Node<E>> stack;
+
+		/**
+		 * Creates an in-order NodeIterator given a direction.
+		 *
+		 * @param forward
+		 *            if true, iterator starts at lowest and goes to highest ;
+		 *            if false, iterator starts at highest and goes to lowest
+		 */
+		private NodeIterator(boolean forward) {
+			movesForward = forward;
+			stack = new CircularArrayList<Node<E>>();
+			descend(root);
+		}
+
+		/**
+		 * Pushes node and its chain of children toward the start.
+		 *
+		 * @param node
+		 *            top of chain, possibly null
+		 */
+		private void descend(Node<E> node) {
+			while (node != null) {
+				stack.push(node);
+				node = movesForward ? node.left : node.right;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public Node<E> next() {
+			if (!hasNext())
+				throw new NoSuchElementException(
+						"No more elements remaining in iterator");
+
+			Node<E> node = stack.pop();
+			descend(movesForward ? node.right : node.left);
+			return node;
+		}
+
+	}
+
+	/**
+	 * Iterator returning each node's data once per occurrence.
+	 *
+	 * @author Jacob Malter
+	 *
+	 */
+	private class PersistentIterator implements Iterator<E> {
+
+		/** Node whose data is returned next, if remaining is positive */
+		private Node<E> node;
+		/** Distinct nodes */
+		private NodeIterator nodes;
+		/** Occurrences of node not yet returned */
+		private int remaining;
+
+		private PersistentIterator(boolean forward) {
+			nodes = new NodeIterator(forward);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0 || nodes.hasNext();
+		}
+
+		@Override
+		public E next() {
+			if (remaining < 1) {
+				node = nodes.next();
+				remaining = node.count;
+			}
+			remaining--;
+			return node.data;
+		}
+
+	}
+
+	/** Used to compare elements */
+	private final Comparator<? super E> comparator;
+	/** Reference to beginning of tree */
+	private final Node<E> root;
+
+	/**
+	 * Constructs an empty PersistentTreeMultiset using natural ordering
+	 * comparator.
+	 */
+	public PersistentTreeMultiset() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty PersistentTreeMultiset using given comparator.
+	 *
+	 * @param comp
+	 *            ordering being used
+	 */
+	public PersistentTreeMultiset(Comparator<? super E> comp) {
+		this(comp, null);
+	}
+
+	/**
+	 * Constructs a version sharing given tree.
+	 *
+	 * @param comp
+	 *            ordering being used
+	 * @param root
+	 *            reference to beginning of tree
+	 */
+	private PersistentTreeMultiset(Comparator<? super E> comp, Node<E> root) {
+		this.comparator = comp;
+		this.root = root;
+	}
+
+	/**
+	 * This implementation refuses every element. Use plus instead.
+	 */
+	@Override
+	public boolean add(E obj) {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	/**
+	 * This implementation refuses every element. Use plus instead.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	/**
+	 * Appends two subtrees of equal black height whose elements are all in
+	 * order. Replaces a removed node by its children.
+	 *
+	 * @param first
+	 *            lesser subtree
+	 * @param second
+	 *            greater subtree
+	 * @return joined subtree
+	 */
+	private static <E> Node<E> append(Node<E> first, Node<E> second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+
+		if (isRed(first) && isRed(second)) {
+			Node<E> middle = append(first.right, second.left);
+			if (isRed(middle))
+				return copy(middle, false,
+						copy(first, false, first.left, middle.left),
+						copy(second, false, middle.right, second.right));
+			return copy(first, false, first.left,
+					copy(second, false, middle, second.right));
+		} else if (!isRed(first) && !isRed(second)) {
+			Node<E> middle = append(first.right, second.left);
+			if (isRed(middle))
+				return copy(middle, false,
+						copy(first, true, first.left, middle.left),
+						copy(second, true, middle.right, second.right));
+			return balanceLeft(first, first.left,
+					copy(second, true, middle, second.right));
+		} else if (isRed(second))
+			return copy(second, false, append(first, second.left),
+					second.right);
+		else
+			return copy(first, false, first.left, append(first.right, second));
+	}
+
+	/**
+	 * Rebuilds a black node whose subtrees may have one red-red violation,
+	 * rotating the violation into a red node with two black children.
+	 *
+	 * @param source
+	 *            node whose data and count are kept
+	 * @param left
+	 *            left subtree
+	 * @param right
+	 *            right subtree
+	 * @return balanced subtree
+	 */
+	private static <E> Node<E> balance(Node<E> source, Node<E> left,
+			Node<E> right) {
+		if (isRed(left) && isRed(right))
+			return copy(source, false, blacken(left), blacken(right));
+		if (isRed(left) && isRed(left.left))
+			return copy(left, false, blacken(left.left),
+					copy(source, true, left.right, right));
+		if (isRed(left) && isRed(left.right))
+			return copy(left.right, false,
+					copy(left, true, left.left, left.right.left),
+					copy(source, true, left.right.right, right));
+		if (isRed(right) && isRed(right.right))
+			return copy(right, false, copy(source, true, left, right.left),
+					blacken(right.right));
+		if (isRed(right) && isRed(right.left))
+			return copy(right.left, false,
+					copy(source, true, left, right.left.left),
+					copy(right, true, right.left.right, right.right));
+		return copy(source, true, left, right);
+	}
+
+	/**
+	 * Rebuilds a node whose left subtree lost one black node.
+	 *
+	 * @param source
+	 *            node whose data and count are kept
+	 * @param left
+	 *            shortened left subtree
+	 * @param right
+	 *            right subtree
+	 * @return subtree with restored black height, possibly one less
+	 */
+	private static <E> Node<E> balanceLeft(Node<E> source, Node<E> left,
+			Node<E> right) {
+		if (isRed(left))
+			return copy(source, false, blacken(left), right);
+		if (isBlack(right))
+			return balance(source, left, redden(right));
+		if (isRed(right) && isBlack(right.left))
+			return copy(right.left, false,
+					copy(source, true, left, right.left.left),
+					balance(right, right.left.right, redden(right.right)));
+		throw new AssertionError("balanceLeft: Logically unreachable.");
+	}
+
+	/**
+	 * Mirrors balanceLeft. Rebuilds a node whose right subtree lost one black
+	 * node.
+	 *
+	 * @param source
+	 *            node whose data and count are kept
+	 * @param left
+	 *            left subtree
+	 * @param right
+	 *            shortened right subtree
+	 * @return subtree with restored black height, possibly one less
+	 */
+	private static <E> Node<E> balanceRight(Node<E> source, Node<E> left,
+			Node<E> right) {
+		if (isRed(right))
+			return copy(source, false, left, blacken(right));
+		if (isBlack(left))
+			return balance(source, redden(left), right);
+		if (isRed(left) && isBlack(left.right))
+			return copy(left.right, false,
+					balance(left, redden(left.left), left.right.left),
+					copy(source, true, left.right.right, right));
+		throw new AssertionError("balanceRight: Logically unreachable.");
+	}
+
+	/**
+	 * Returns a black copy of a node.
+	 *
+	 * @param node
+	 *            node being copied, possibly null
+	 * @return black copy of node, or node itself if already black or null
+	 */
+	private static <E> Node<E> blacken(Node<E> node) {
+		return node == null || node.isBlack ? node : copy(node, true,
+				node.left, node.right);
+	}
+
+	@Override
+	public E ceiling(E e) {
+		Node<E> current = root, result = null;
+		while (current != null) {
+			int comparison = compare(comparator(), e, current.data);
+			if (comparison == 0)
+				return current.data;
+			if (comparison < 0) {
+				result = current;
+				current = current.left;
+			} else
+				current = current.right;
+		}
+		return result == null ? null : result.data;
+	}
+
+	/**
+	 * This implementation refuses to empty. Use a new PersistentTreeMultiset
+	 * instead.
+	 */
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return getNode(obj) != null;
+	}
+
+	/**
+	 * Copies a node's data and count onto new color and children.
+	 *
+	 * @param source
+	 *            node whose data and count are kept
+	 * @param isBlack
+	 *            color of copy
+	 * @param left
+	 *            left child of copy
+	 * @param right
+	 *            right child of copy
+	 * @return new node
+	 */
+	private static <E> Node<E> copy(Node<E> source, boolean isBlack,
+			Node<E> left, Node<E> right) {
+		return new Node<E>(source.data, source.count, isBlack, left, right);
+	}
+
+	@Override
+	public int count(Object obj) {
+		Node<E> node = getNode(obj);
+		return node == null ? 0 : node.count;
+	}
+
+	/**
+	 * Removes node with data equal to target from a subtree.
+	 *
+	 * PRECONDITION: subtree contains target
+	 *
+	 * @param node
+	 *            root of subtree
+	 * @param target
+	 *            data of removed node
+	 * @return subtree without target, possibly one black node shorter
+	 */
+	private Node<E> delete(Node<E> node, E target) {
+		int comparison = compare(comparator(), target, node.data);
+		if (comparison < 0)
+			return isBlack(node.left) ? balanceLeft(node,
+					delete(node.left, target), node.right) : copy(node, false,
+					delete(node.left, target), node.right);
+		if (comparison > 0)
+			return isBlack(node.right) ? balanceRight(node, node.left,
+					delete(node.right, target)) : copy(node, false, node.left,
+					delete(node.right, target));
+		return append(node.left, node.right);
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new PersistentIterator(false);
+	}
+
+	@Override
+	protected int distinctSize() {
+		int distinct = 0;
+		for (NodeIterator it = new NodeIterator(true); it.hasNext(); it.next())
+			distinct++;
+		return distinct;
+	}
+
+	/**
+	 * This implementation returns the immutable nodes themselves.
+	 */
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		NodeIterator it = new NodeIterator(true);
+		return new Iterator<Multiset.Entry<E>>() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Multiset.Entry<E> next() {
+				return it.next();
+			}
+
+		};
+	}
+
+	@Override
+	public E floor(E e) {
+		Node<E> current = root, result = null;
+		while (current != null) {
+			int comparison = compare(comparator(), e, current.data);
+			if (comparison == 0)
+				return current.data;
+			if (comparison > 0) {
+				result = current;
+				current = current.right;
+			} else
+				current = current.left;
+		}
+		return result == null ? null : result.data;
+	}
+
+	/**
+	 * Returns a node with data equal to given object.
+	 *
+	 * @param obj
+	 *            queried object
+	 * @return node with data equal to given object or null
+	 */
+	private Node<E> getNode(Object obj) {
+		try {
+			@SuppressWarnings("unchecked")
+			E target = (E) obj;
+			// suppressed warning safe within try/catch block
+
+			Node<E> current = root;
+			while (current != null) {
+				int comparison = compare(comparator(), target, current.data);
+				if (comparison < 0)
+					current = current.left;
+				else if (comparison > 0)
+					current = current.right;
+				else
+					return current;
+			}
+		} catch (ClassCastException e) {
+			return null;
+		}
+
+		// Tried and failed
+		return null;
+	}
+
+	@Override
+	public E higher(E e) {
+		Node<E> current = root, result = null;
+		while (current != null) {
+			if (compare(comparator(), e, current.data) < 0) {
+				result = current;
+				current = current.left;
+			} else
+				current = current.right;
+		}
+		return result == null ? null : result.data;
+	}
+
+	/**
+	 * Inserts occurrences into a subtree by path copying.
+	 *
+	 * @param node
+	 *            root of subtree, possibly null
+	 * @param obj
+	 *            object being inserted
+	 * @param occurrences
+	 *            positive number of occurrences
+	 * @return new subtree, possibly with a red root with a red child
+	 */
+	private Node<E> insert(Node<E> node, E obj, int occurrences) {
+		if (node == null)
+			return new Node<E>(obj, occurrences, false, null, null);
+
+		int comparison = compare(comparator(), obj, node.data);
+		if (comparison == 0)
+			return new Node<E>(node.data, node.count + occurrences,
+					node.isBlack, node.left, node.right);
+		if (!node.isBlack)
+			return comparison < 0 ? copy(node, false,
+					insert(node.left, obj, occurrences), node.right) : copy(
+					node, false, node.left, insert(node.right, obj, occurrences));
+		return comparison < 0 ? balance(node,
+				insert(node.left, obj, occurrences), node.right) : balance(node,
+				node.left, insert(node.right, obj, occurrences));
+	}
+
+	/**
+	 * Returns true if node is non-null and black.
+	 *
+	 * @param node
+	 *            node or null
+	 * @return true if node is non-null and black
+	 */
+	private static boolean isBlack(Node<?> node) {
+		return node != null && node.isBlack;
+	}
+
+	/**
+	 * Returns true if node is non-null and red.
+	 *
+	 * @param node
+	 *            node or null
+	 * @return true if node is non-null and red
+	 */
+	private static boolean isRed(Node<?> node) {
+		return node != null && !node.isBlack;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new PersistentIterator(true);
+	}
+
+	@Override
+	public E lower(E e) {
+		Node<E> current = root, result = null;
+		while (current != null) {
+			if (compare(comparator(), e, current.data) > 0) {
+				result = current;
+				current = current.right;
+			} else
+				current = current.left;
+		}
+		return result == null ? null : result.data;
+	}
+
+	@Override
+	public E maximum() {
+		Node<E> current = root;
+		if (current == null)
+			return null;
+		while (current.right != null)
+			current = current.right;
+		return current.data;
+	}
+
+	@Override
+	public E minimum() {
+		Node<E> current = root;
+		if (current == null)
+			return null;
+		while (current.left != null)
+			current = current.left;
+		return current.data;
+	}
+
+	/**
+	 * Returns a version without one occurrence of given object.
+	 *
+	 * @param obj
+	 *            object being removed
+	 * @return new version, or this if object is not present
+	 */
+	public PersistentTreeMultiset<E> minus(Object obj) {
+		return minus(obj, 1);
+	}
+
+	/**
+	 * Returns a version with up to given occurrences of an object removed.
+	 *
+	 * @param obj
+	 *            object being removed
+	 * @param occurrences
+	 *            number of occurrences removed
+	 * @return new version, or this if nothing is removed
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	public PersistentTreeMultiset<E> minus(Object obj, int occurrences) {
+		checkOccurrences(occurrences);
+		Node<E> node = getNode(obj);
+		if (node == null || occurrences == 0)
+			return this;
+		if (node.count > occurrences)
+			return new PersistentTreeMultiset<E>(comparator, recount(root,
+					node.data, node.count - occurrences));
+		return new PersistentTreeMultiset<E>(comparator,
+				blacken(delete(root, node.data)));
+	}
+
+	/**
+	 * Returns a version with one more occurrence of given object.
+	 *
+	 * @param obj
+	 *            object being added
+	 * @return new version
+	 */
+	public PersistentTreeMultiset<E> plus(E obj) {
+		return plus(obj, 1);
+	}
+
+	/**
+	 * Returns a version with given occurrences of an object added.
+	 *
+	 * @param obj
+	 *            object being added
+	 * @param occurrences
+	 *            number of occurrences added
+	 * @return new version, or this if occurrences is zero
+	 * @throws IllegalArgumentException
+	 *             if occurrences is negative
+	 */
+	public PersistentTreeMultiset<E> plus(E obj, int occurrences) {
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return this;
+		return new PersistentTreeMultiset<E>(comparator, blacken(insert(root,
+				obj, occurrences)));
+	}
+
+	/**
+	 * Returns number of elements strictly less than given element.
+	 *
+	 * @param e
+	 *            element for comparison
+	 * @return number of elements strictly less than e
+	 */
+	public int rank(E e) {
+		int rank = 0;
+		Node<E> current = root;
+		while (current != null) {
+			if (compare(comparator(), e, current.data) <= 0)
+				current = current.left;
+			else {
+				rank += sizeOf(current.left) + current.count;
+				current = current.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Copies the path to a present element, giving it a new count.
+	 *
+	 * @param node
+	 *            root of subtree containing target
+	 * @param target
+	 *            data of recounted node
+	 * @param count
+	 *            new positive count
+	 * @return new subtree
+	 */
+	private Node<E> recount(Node<E> node, E target, int count) {
+		int comparison = compare(comparator(), target, node.data);
+		if (comparison < 0)
+			return copy(node, node.isBlack, recount(node.left, target, count),
+					node.right);
+		if (comparison > 0)
+			return copy(node, node.isBlack, node.left,
+					recount(node.right, target, count));
+		return new Node<E>(node.data, count, node.isBlack, node.left,
+				node.right);
+	}
+
+	/**
+	 * Returns a red copy of a node.
+	 *
+	 * PRECONDITION: node is non-null and black
+	 *
+	 * @param node
+	 *            node being copied
+	 * @return red copy of node
+	 */
+	private static <E> Node<E> redden(Node<E> node) {
+		return copy(node, false, node.left, node.right);
+	}
+
+	/**
+	 * This implementation refuses every element. Use minus instead.
+	 */
+	@Override
+	public boolean remove(Object obj) {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	/**
+	 * This implementation refuses every element. Use minus instead.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	/**
+	 * Returns element comparatively ranked at index.
+	 *
+	 * @param index
+	 *            position of element compared to other elements
+	 * @return data ranked at index
+	 */
+	public E select(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException(
+					"Index must point inclusively between 0 and one less than size.");
+		Node<E> current = root;
+		while (true) {
+			int k = sizeOf(current.left);
+			if (index < k)
+				current = current.left;
+			else if (index >= k + current.count) {
+				index -= k + current.count;
+				current = current.right;
+			} else
+				return current.data;
+		}
+	}
+
+	/**
+	 * This implementation refuses to change counts. Use plus or minus instead.
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		throw new UnsupportedOperationException(
+				"Cannot change persistent multiset.");
+	}
+
+	@Override
+	public int size() {
+		return sizeOf(root);
+	}
+
+	/**
+	 * Returns number of elements in subtree.
+	 *
+	 * @param node
+	 *            root of subtree, possibly null
+	 * @return number of elements in subtree
+	 */
+	private static int sizeOf(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+}
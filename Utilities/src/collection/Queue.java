@@ -3,6 +3,9 @@
  */
 package collection;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 /**
  * Defines behavior for a first in, first out (FIFO) collection.
  * 
@@ -52,4 +55,15 @@ public interface Queue<E> extends Collection<E> {
 	 */
 	E remove();
 
+	/**
+	 * Creates an ordered spliterator over a queue, encountering elements in
+	 * iteration order.
+	 * 
+	 * @return ordered, sized spliterator over elements
+	 */
+	@Override
+	default Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+	}
+
 }
@@ -0,0 +1,115 @@
+package collection;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free queue for one producer thread and one consumer thread.
+ * Each side owns one counter, publishes it with an ordered store, and reads
+ * the other side's counter only when its cached view says the ring is full or
+ * empty.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class SingleProducerRingQueue<E> extends AbstractRingQueue<E> {
+
+	/**
+	 * Constructs an empty SingleProducerRingQueue.
+	 *
+	 * @param capacity
+	 *            most elements held, rounded up to a power of two
+	 */
+	public SingleProducerRingQueue(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * This implementation reads tail once and publishes head after each
+	 * element.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public int drain(Consumer<? super E> consumer, int limit) {
+		checkLimit(limit);
+		long head = sequences.get(HEAD);
+		long count = Math.min(limit, sequences.get(TAIL) - head);
+		for (long i = head; i < head + count; i++) {
+			E result = (E) buffer.get((int) i & mask);
+			buffer.lazySet((int) i & mask, null);
+			sequences.lazySet(HEAD, i + 1);
+			consumer.accept(result);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * This implementation reads head once and publishes tail after the last
+	 * element.
+	 */
+	@Override
+	public int fill(Supplier<? extends E> supplier, int limit) {
+		checkLimit(limit);
+		long tail = sequences.get(TAIL);
+		long count = Math.min(limit,
+				capacity() - (tail - sequences.get(HEAD)));
+		long i = tail;
+		try {
+			for (; i < tail + count; i++) {
+				E obj = supplier.get();
+				if (obj == null)
+					throw new IllegalArgumentException(
+							"Cannot add null object.");
+				buffer.lazySet((int) i & mask, obj);
+			}
+		} finally {
+			sequences.lazySet(TAIL, i);
+		}
+		return (int) count;
+	}
+
+	@Override
+	public boolean offer(E obj) {
+		if (obj == null)
+			throw new IllegalArgumentException("Cannot add null object.");
+		long tail = sequences.get(TAIL);
+		if (tail - cached[HEAD] > mask) {
+			cached[HEAD] = sequences.get(HEAD);
+			if (tail - cached[HEAD] > mask)
+				return false;
+		}
+		buffer.lazySet((int) tail & mask, obj);
+		sequences.lazySet(TAIL, tail + 1);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		long head = sequences.get(HEAD);
+		if (head >= cached[TAIL]) {
+			cached[TAIL] = sequences.get(TAIL);
+			if (head >= cached[TAIL])
+				return null;
+		}
+		return (E) buffer.get((int) head & mask);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E poll() {
+		long head = sequences.get(HEAD);
+		if (head >= cached[TAIL]) {
+			cached[TAIL] = sequences.get(TAIL);
+			if (head >= cached[TAIL])
+				return null;
+		}
+		E result = (E) buffer.get((int) head & mask);
+		buffer.lazySet((int) head & mask, null);
+		sequences.lazySet(HEAD, head + 1);
+		return result;
+	}
+
+}
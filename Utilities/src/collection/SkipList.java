@@ -4,6 +4,8 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * Skip list implementing using doubly-linked linked lists.
@@ -602,4 +604,15 @@ public class SkipList<E extends Comparable<? super E>> extends
 		return size;
 	}
 
+	/**
+	 * This implementation splits off growing batches of the bottom level into
+	 * arrays. It reports SORTED only under natural ordering since batches
+	 * cannot carry a comparator.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED
+				| (comparator == null ? Spliterator.SORTED : 0));
+	}
+
 }
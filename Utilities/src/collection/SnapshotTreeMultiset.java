@@ -0,0 +1,179 @@
+package collection;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Thread safe ordered multiset publishing immutable versions.
+ *
+ * Writers are serialized and replace the current PersistentTreeMultiset with
+ * a new version through a volatile field. Readers take no locks: every read
+ * sees one whole version, and iterators walk the version current at their
+ * creation regardless of later changes. snapshot hands out the current
+ * version itself, so consistent multi-step reads need no copying.
+ *
+ * @author Jacob Malter
+ *
+ * @param <E>
+ *            The type of the elements stored in this collection.
+ */
+public class SnapshotTreeMultiset<E extends Comparable<? super E>> extends
+		AbstractMultiset<E> implements Navigable<E> {
+
+	/** Latest published version */
+	private volatile PersistentTreeMultiset<E> current;
+
+	/**
+	 * Constructs an empty SnapshotTreeMultiset using natural ordering
+	 * comparator.
+	 */
+	public SnapshotTreeMultiset() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty SnapshotTreeMultiset using given comparator.
+	 *
+	 * @param comp
+	 *            ordering being used
+	 */
+	public SnapshotTreeMultiset(Comparator<? super E> comp) {
+		current = new PersistentTreeMultiset<E>(comp);
+	}
+
+	@Override
+	public boolean add(E obj) {
+		return add(obj, 1);
+	}
+
+	@Override
+	public synchronized boolean add(E obj, int occurrences) {
+		PersistentTreeMultiset<E> version = current.plus(obj, occurrences);
+		boolean changed = version != current;
+		current = version;
+		return changed;
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return current.ceiling(e);
+	}
+
+	@Override
+	public synchronized void clear() {
+		current = new PersistentTreeMultiset<E>(current.comparator());
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return current.comparator();
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return current.contains(obj);
+	}
+
+	@Override
+	public int count(Object obj) {
+		return current.count(obj);
+	}
+
+	/**
+	 * This implementation walks the version current at its creation.
+	 */
+	@Override
+	public Iterator<E> descendingIterator() {
+		return current.descendingIterator();
+	}
+
+	@Override
+	protected int distinctSize() {
+		return current.entrySet().size();
+	}
+
+	/**
+	 * This implementation walks the version current at its creation.
+	 */
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		return current.entrySet().iterator();
+	}
+
+	@Override
+	public E floor(E e) {
+		return current.floor(e);
+	}
+
+	@Override
+	public E higher(E e) {
+		return current.higher(e);
+	}
+
+	/**
+	 * This implementation walks the version current at its creation and never
+	 * throws ConcurrentModificationException.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return current.iterator();
+	}
+
+	@Override
+	public E lower(E e) {
+		return current.lower(e);
+	}
+
+	@Override
+	public E maximum() {
+		return current.maximum();
+	}
+
+	@Override
+	public E minimum() {
+		return current.minimum();
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+		return remove(obj, 1);
+	}
+
+	@Override
+	public synchronized boolean remove(Object obj, int occurrences) {
+		PersistentTreeMultiset<E> version = current.minus(obj, occurrences);
+		boolean changed = version != current;
+		current = version;
+		return changed;
+	}
+
+	/**
+	 * This implementation is atomic with respect to other writers.
+	 */
+	@Override
+	public synchronized int setCount(E obj, int count) {
+		checkOccurrences(count);
+		int previous = current.count(obj);
+		if (count > previous)
+			current = current.plus(obj, count - previous);
+		else if (count < previous)
+			current = current.minus(obj, previous - count);
+		return previous;
+	}
+
+	@Override
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Returns the current version. It never changes, so any number of reads
+	 * against it are mutually consistent.
+	 *
+	 * @return current version
+	 */
+	public PersistentTreeMultiset<E> snapshot() {
+		return current;
+	}
+
+}
@@ -2,10 +2,22 @@ package collection;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Ordered multiset backed by a red-black tree. Allows multiple, equal entries.
  * 
+ * In compressed mode, equal elements share one node which counts them. Adding
+ * an element already present is then a lookup plus an increment, and memory
+ * grows with the number of distinct elements rather than with size. Only the
+ * first of several equal elements is retained, so compressed mode suits
+ * elements whose equality means identity.
+ * 
+ * By default every element keeps its own node, and add(E, int),
+ * remove(Object, int) and setCount cost one tree operation per occurrence.
+ * Construct with TreeMultiset(comp, true) for O(log n) bulk operations.
+ * 
  * @author Jacob Malter
  *
  * @param <E>
@@ -24,6 +36,10 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	private class TreeIterator implements Iterator<E> {
 		Stack<Node<E>> stack;
 		private boolean movesForward;
+		/** Node whose data is returned next, if remaining is positive */
+		private Node<E> node;
+		/** Occurrences of node not yet returned */
+		private int remaining;
 
 		/**
 		 * Creates an in-order TreeIterator given a direction.
@@ -51,13 +67,27 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 
 		@Override
 		public boolean hasNext() {
-			return !stack.isEmpty();
+			return remaining > 0 || !stack.isEmpty();
 		}
 
 		@Override
 		public E next() {
+			if (remaining < 1) {
+				node = nextNode();
+				remaining = node.count;
+			}
+			remaining--;
+			return node.data;
+		}
+
+		/**
+		 * Returns next node in traversal regardless of its count.
+		 * 
+		 * @return next node
+		 */
+		private Node<E> nextNode() {
 			Node<E> node = stack.pop();
-			E result = node.data;
+			Node<E> result = node;
 			if (movesForward) {
 				if (node.right != null) {
 					node = node.right;
@@ -92,18 +122,153 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		private E data;
 		private boolean isBlack;
 		private Node<E> left, parent, right;
+		/** Number of elements equal to data, always 1 unless compressed */
+		private int count;
+		/** Number of elements in subtree rooted here */
+		private int size;
 
 		private Node(E data, Node<E> left, Node<E> parent, Node<E> right) {
 			this.data = data;
 			this.left = left;
 			this.parent = parent;
 			this.right = right;
+			this.count = 1;
+			this.size = 1;
+		}
+
+	}
+
+	/**
+	 * Spliterator over a range of ranks, halved on each split. Each half finds
+	 * its first node by descending through subtree sizes and then follows
+	 * parent links, so splitting costs O(log n) and never walks elements.
+	 * Binds to size on first use and ignores later changes to underlying
+	 * TreeMultiset.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 */
+	private class TreeSpliterator implements Spliterator<E> {
+
+		/** Rank after last element covered, -1 until bound */
+		private int fence;
+		/** Rank of next element */
+		private int index;
+		/** Node whose data is returned next, null until located */
+		private Node<E> node;
+		/** Occurrences of node not yet returned */
+		private int remaining;
+
+		private TreeSpliterator(int index, int fence) {
+			this.fence = fence;
+			this.index = index;
+		}
+
+		/**
+		 * Returns data of the node at index and moves forward one element.
+		 * 
+		 * Precondition: index is less than fence.
+		 * 
+		 * @return data ranked at index
+		 */
+		private E advance() {
+			if (node == null)
+				locate();
+			else if (remaining < 1) {
+				node = successor(node);
+				remaining = node.count;
+			}
+			remaining--;
+			index++;
+			return node.data;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SORTED
+					| Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+
+		@Override
+		public long estimateSize() {
+			return getFence() - index;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			int hi = getFence();
+			while (index < hi)
+				action.accept(advance());
+		}
+
+		@Override
+		public Comparator<? super E> getComparator() {
+			return comparator;
+		}
+
+		/**
+		 * Returns fence, binding to size on first use.
+		 * 
+		 * @return rank after last element covered
+		 */
+		private int getFence() {
+			if (fence < 0)
+				fence = size;
+			return fence;
+		}
+
+		/**
+		 * Finds the node ranked at index and its occurrences from index on.
+		 */
+		private void locate() {
+			Node<E> current = root;
+			int i = index;
+			while (true) {
+				int k = subtreeSize(current.left);
+				if (i < k)
+					current = current.left;
+				else if (i >= k + current.count) {
+					i -= k + current.count;
+					current = current.right;
+				} else {
+					node = current;
+					remaining = current.count - (i - k);
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			if (index >= getFence())
+				return false;
+			action.accept(advance());
+			return true;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			int lo = index, mid = (lo + getFence()) >>> 1;
+			if (lo >= mid)
+				return null;
+			TreeSpliterator prefix = new TreeSpliterator(lo, mid);
+			prefix.node = node;
+			prefix.remaining = remaining;
+			node = null;
+			index = mid;
+			return prefix;
 		}
 
 	}
 
 	/** Used to compare elements */
 	private final Comparator<? super E> comparator;
+	/** Does one node count all elements equal to its data */
+	private final boolean compressed;
 	/** Reference to beginning of tree */
 	private Node<E> root;
 	/** Number of elements */
@@ -117,13 +282,26 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	}
 
 	/**
-	 * Constructs an empty TreeMultiset using given comparator.
+	 * Constructs an empty, uncompressed TreeMultiset using given comparator.
 	 * 
 	 * @param comp
 	 *            ordering being used
 	 */
 	public TreeMultiset(Comparator<? super E> comp) {
+		this(comp, false);
+	}
+
+	/**
+	 * Constructs an empty TreeMultiset using given comparator and mode.
+	 * 
+	 * @param comp
+	 *            ordering being used
+	 * @param compressed
+	 *            if true, equal elements share one counting node
+	 */
+	public TreeMultiset(Comparator<? super E> comp, boolean compressed) {
 		comparator = comp;
+		this.compressed = compressed;
 	}
 
 	@Override
@@ -132,76 +310,140 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	}
 
 	/**
-	 * Mirrors blackRightSibling. Rotates sibling's children to maintain
-	 * red-black properties.
-	 * 
-	 * PRECONDITION: sibling is non-null left child of parent
-	 * 
-	 * @param sibling
-	 *            sibling of removed node
-	 * @return true if operation run, false otherwise
-	 */
-	private boolean blackLeftSibling(Node<E> sibling) {
-		if (sibling != null && sibling.isBlack) {
-			if (sibling.left != null && !sibling.left.isBlack) {
-				rotateRight(sibling.parent);
-				return true;
-			} else if (sibling.right == null || !sibling.right.isBlack) {
-				rotateRight(sibling);
-				rotateRight(sibling.parent.parent);
-				return true;
-			}
-		}
-		return false;
+	 * This implementation descends once from root in compressed mode, taking
+	 * O(log n) time. Uncompressed, it inserts one node per occurrence in
+	 * O(occurrences * log n) time.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		if (!compressed)
+			return super.add(obj, occurrences);
+		checkOccurrences(occurrences);
+		if (occurrences == 0)
+			return false;
+		Node<E> node = new Node<E>(obj, null, null, null);
+		node.count = node.size = occurrences;
+		return rbAdd(node);
 	}
 
 	/**
-	 * Mirrors blackLeftSibling. Rotates sibling's children to maintain
-	 * red-black properties.
+	 * Adds every element of an iterator in linear time when elements arrive in
+	 * ascending order. Existing nodes and new elements are merged into one
+	 * sorted sequence, from which a balanced tree is built with no
+	 * comparisons, rotations, or recoloring. Unsorted input is first sorted by
+	 * Arrays.mergeSort.
 	 * 
-	 * PRECONDITION: sibling is non-null right child of parent
-	 * 
-	 * @param sibling
-	 *            sibling of removed node
-	 * @return true if operation run, false otherwise
-	 */
-	private boolean blackRightSibling(Node<E> sibling) {
-		if (sibling != null && sibling.isBlack) {
-			if (sibling.right != null && !sibling.right.isBlack) {
-				rotateLeft(sibling.parent);
-				return true;
-			} else if (sibling.left == null || !sibling.left.isBlack) {
-				rotateLeft(sibling);
-				rotateLeft(sibling.parent.parent);
-				return true;
-			}
-		}
-		return false;
+	 * @param elements
+	 *            elements being added, preferably in ascending order
+	 * @return true if operation changed collection, false otherwise
+	 */
+	public boolean addAllSorted(Iterator<? extends E> elements) {
+		return bulkLoad(elements, false);
 	}
 
 	/**
-	 * Colors child's parent in black, and colors sibling in red.
+	 * Builds a balanced subtree from sorted nodes. Nodes at redLevel are red
+	 * and all others black, which satisfies red-black properties whenever
+	 * redLevel is one more than the depth of the deepest full level.
 	 * 
-	 * PRECONDITION: sibling is non-null with two black children
+	 * @param nodes
+	 *            sorted nodes
+	 * @param lo
+	 *            first node of subtree
+	 * @param hi
+	 *            last node of subtree
+	 * @param depth
+	 *            depth of subtree root
+	 * @param redLevel
+	 *            depth of red nodes
+	 * @return root of subtree
+	 */
+	private static <E> Node<E> build(Node<E>[] nodes, int lo, int hi,
+			int depth, int redLevel) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Node<E> node = nodes[mid];
+		node.left = build(nodes, lo, mid - 1, depth + 1, redLevel);
+		node.right = build(nodes, mid + 1, hi, depth + 1, redLevel);
+		if (node.left != null)
+			node.left.parent = node;
+		if (node.right != null)
+			node.right.parent = node;
+		node.isBlack = depth != redLevel;
+		updateSize(node);
+		return node;
+	}
+
+	/**
+	 * Performs addAllSorted, optionally dropping elements equal to ones
+	 * already present. Subclasses which refuse duplicates load through this
+	 * method.
 	 * 
-	 * @param sibling
-	 *            sibling of removed node
-	 * @return true if operation run, false otherwise
-	 */
-	private boolean blackSiblingBlackChildren(Node<E> sibling) {
-		if (sibling != null && sibling.isBlack
-				&& (sibling.left == null || sibling.left.isBlack)
-				&& (sibling.right == null || sibling.right.isBlack)) {
-			// Two black children
-			boolean flag = sibling.isBlack;
-			sibling.parent.isBlack = true;
-			sibling.isBlack = false;
-			if (flag)
-				recolorRemove(sibling.parent, sibling.parent.parent,
-						sibling.parent == sibling.parent.parent.left);
-			return true;
+	 * @param elements
+	 *            elements being added, preferably in ascending order
+	 * @param distinct
+	 *            if true, elements equal to an existing element are dropped
+	 * @return true if operation changed collection, false otherwise
+	 */
+	protected boolean bulkLoad(Iterator<? extends E> elements, boolean distinct) {
+		// Gather new elements, noting whether they arrived sorted
+		@SuppressWarnings("unchecked")
+		E[] added = (E[]) new Comparable<?>[Arrays.DEFAULT_CAPACITY];
+		// suppression safe since only elements of type E will be inserted
+		int length = 0;
+		boolean sorted = true;
+		while (elements.hasNext()) {
+			E next = elements.next();
+			if (length == added.length)
+				added = java.util.Arrays.copyOf(added, length * 2);
+			if (length > 0 && compare(comparator(), added[length - 1], next) > 0)
+				sorted = false;
+			added[length++] = next;
 		}
-		return false;
+		if (length == 0)
+			return false;
+		added = java.util.Arrays.copyOf(added, length);
+		if (!sorted)
+			Arrays.mergeSort(added, (o1, o2) -> compare(comparator(), o1, o2));
+
+		// Merge existing nodes with new elements, existing ones first on ties
+		@SuppressWarnings("unchecked")
+		Node<E>[] nodes = (Node<E>[]) new Node<?>[size + length];
+		// suppression safe since only nodes of type E will be inserted
+		TreeIterator it = new TreeIterator(true);
+		Node<E> existing = it.hasNext() ? it.nextNode() : null;
+		int merged = 0, i = 0;
+		int before = size;
+		size = 0;
+		while (existing != null || i < length) {
+			Node<E> next;
+			if (existing != null
+					&& (i == length || compare(comparator(), existing.data,
+							added[i]) <= 0)) {
+				next = existing;
+				existing = it.hasNext() ? it.nextNode() : null;
+			} else
+				next = new Node<E>(added[i++], null, null, null);
+
+			Node<E> last = merged > 0 ? nodes[merged - 1] : null;
+			if (last != null && (distinct || compressed)
+					&& compare(comparator(), last.data, next.data) == 0) {
+				if (distinct)
+					continue;
+				last.count += next.count;
+			} else {
+				next.parent = null;
+				nodes[merged++] = next;
+			}
+			size += next.count;
+		}
+
+		int redLevel = 0;
+		for (int m = merged - 1; m >= 0; m = m / 2 - 1)
+			redLevel++;
+		root = build(nodes, 0, merged - 1, 0, redLevel);
+		return size != before;
 	}
 
 	@Override
@@ -217,24 +459,6 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		return null;
 	}
 
-	/**
-	 * Behaves differently that its overloaded counterpart. Used to find a
-	 * replacement node.
-	 * 
-	 * @param target
-	 *            node to find ceiling of
-	 * @return ceiling of target
-	 */
-	private Node<E> ceiling(Node<E> target) {
-		Node<E> ceilingCurrent = target.right;
-		Node<E> ceilingPrev = target;
-		do {
-			ceilingPrev = ceilingCurrent;
-			ceilingCurrent = ceilingCurrent.left;
-		} while (ceilingCurrent != null);
-		return ceilingPrev;
-	}
-
 	@Override
 	public void clear() {
 		root = null;
@@ -255,11 +479,80 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		return getNode(obj) != null;
 	}
 
+	/**
+	 * This implementation descends twice from root.
+	 */
+	@Override
+	public int count(Object obj) {
+		try {
+			@SuppressWarnings("unchecked")
+			E target = (E) obj;
+			// suppressed warning safe within try/catch block
+			return rank(target, true) - rank(target, false);
+		} catch (ClassCastException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns number of elements between lo and hi, both inclusive.
+	 * 
+	 * @param lo
+	 *            least element counted
+	 * @param hi
+	 *            greatest element counted
+	 * @return number of elements between lo and hi or 0 if lo is greater than
+	 *         hi
+	 */
+	public int countRange(E lo, E hi) {
+		if (compare(comparator(), lo, hi) > 0)
+			return 0;
+		return rank(hi, true) - rank(lo, false);
+	}
+
 	@Override
 	public Iterator<E> descendingIterator() {
 		return new TreeIterator(false);
 	}
 
+	/**
+	 * This implementation groups runs of equal nodes from an in order
+	 * traversal. In compressed mode every run is a single node.
+	 */
+	@Override
+	protected Iterator<Multiset.Entry<E>> entryIterator() {
+		TreeIterator it = new TreeIterator(true);
+		return new Iterator<Multiset.Entry<E>>() {
+
+			/** First node of next run, valid if pending */
+			private Node<E> head;
+			/** Has head been read but not returned */
+			private boolean pending;
+
+			@Override
+			public boolean hasNext() {
+				return pending || it.hasNext();
+			}
+
+			@Override
+			public Multiset.Entry<E> next() {
+				Node<E> first = pending ? head : it.nextNode();
+				int count = first.count;
+				pending = false;
+				while (!compressed && it.hasNext()) {
+					head = it.nextNode();
+					if (compare(comparator(), first.data, head.data) != 0) {
+						pending = true;
+						break;
+					}
+					count += head.count;
+				}
+				return new ImmutableEntry<E>(first.data, count);
+			}
+
+		};
+	}
+
 	@Override
 	public E floor(E e) {
 		Iterator<E> it = iterator();
@@ -273,24 +566,6 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		return null;
 	}
 
-	/**
-	 * Behaves differently that its overloaded counterpart. Used to find a
-	 * replacement node.
-	 * 
-	 * @param target
-	 *            node to find floor of
-	 * @return floor of target
-	 */
-	private Node<E> floor(Node<E> target) {
-		Node<E> floorCurrent = target.left;
-		Node<E> floorPrev = target;
-		do {
-			floorPrev = floorCurrent;
-			floorCurrent = floorCurrent.right;
-		} while (floorCurrent != null);
-		return floorPrev;
-	}
-
 	/**
 	 * Returns a node with data equal to given object.
 	 * 
@@ -341,6 +616,17 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		return null;
 	}
 
+	/**
+	 * Returns color of a node, treating null leaves as black.
+	 * 
+	 * @param node
+	 *            node or null
+	 * @return true if node is black or null
+	 */
+	private static boolean isBlack(Node<?> node) {
+		return node == null || node.isBlack;
+	}
+
 	@Override
 	public Iterator<E> iterator() {
 		return new TreeIterator(true);
@@ -404,7 +690,80 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	}
 
 	/**
-	 * Typical binary search tree add using a node.
+	 * Returns element at given percentile using the nearest rank method: the
+	 * least element such that at least p percent of elements are less than or
+	 * equal to it.
+	 * 
+	 * @param p
+	 *            percentile between 0 and 100 inclusive
+	 * @return element at percentile or null if empty
+	 * @throws IllegalArgumentException
+	 *             if p is outside 0 to 100
+	 */
+	public E percentile(double p) {
+		if (!(p >= 0 && p <= 100))
+			throw new IllegalArgumentException(
+					"Percentile must be between 0 and 100.");
+		if (size == 0)
+			return null;
+		int rank = (int) Math.ceil(p / 100 * size);
+		return select(Math.max(rank, 1) - 1);
+	}
+
+	/**
+	 * Returns percentage of elements less than or equal to given element.
+	 * 
+	 * @param e
+	 *            element for comparison
+	 * @return percentage between 0 and 100, or 0 if empty
+	 */
+	public double percentileRank(E e) {
+		if (size == 0)
+			return 0;
+		return 100.0 * rank(e, true) / size;
+	}
+
+	/**
+	 * Returns number of elements strictly less than given element. If present,
+	 * this is the index at which select returns its first occurrence.
+	 * 
+	 * @param e
+	 *            element for comparison
+	 * @return number of elements strictly less than e
+	 */
+	public int rank(E e) {
+		return rank(e, false);
+	}
+
+	/**
+	 * Counts elements less than, or optionally equal to, given element by
+	 * descending once from root.
+	 * 
+	 * @param e
+	 *            element for comparison
+	 * @param inclusive
+	 *            if true, elements equal to e are counted
+	 * @return number of elements less than (or equal to) e
+	 */
+	private int rank(E e, boolean inclusive) {
+		int rank = 0;
+		Node<E> current = root;
+		while (current != null) {
+			int comparison = compare(comparator(), e, current.data);
+			if (comparison < 0 || (comparison == 0 && !inclusive))
+				current = current.left;
+			else {
+				rank += subtreeSize(current.left) + current.count;
+				current = current.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Typical binary search tree add using a node. Equal elements are placed
+	 * right of existing ones, or counted by the existing node in compressed
+	 * mode.
 	 * 
 	 * @param node
 	 *            contains data being inserted
@@ -416,48 +775,41 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		if (root == null) {
 			root = node;
 			root.isBlack = true;
-			size++;
+			size += node.count;
 			return true;
 		}
 
-		// Find correct spot
+		// Find correct spot, counting node in every subtree it enters
 		Node<E> current = root;
-		Node<E> prev = root.parent;
+		Node<E> prev = null;
+		int comparison = 0;
 		while (current != null) {
-			int comparison = compare(comparator(), node.data, current.data);
+			comparison = compare(comparator(), node.data, current.data);
 			prev = current;
-			if (comparison < 0)
-				current = current.left;
-			else if (comparison >= 0)
-				current = current.right;
+			prev.size += node.count;
+			if (comparison == 0 && compressed) {
+				prev.count += node.count;
+				size += node.count;
+				return true;
+			}
+			current = comparison < 0 ? current.left : current.right;
 		}
 
 		// Insert node
 		node.parent = prev;
-		int comparison = compare(comparator(), node.data, prev.data);
-		if (comparison < 0) {
+		if (comparison < 0)
 			prev.left = node;
-			recolorAdd(prev.left);
-		} else if (comparison > 0) {
+		else
 			prev.right = node;
-			recolorAdd(prev.right);
-		} else {
-			if (prev.right == null) {
-				prev.right = node;
-				recolorAdd(prev.right);
-			} else if (prev.left == null) {
-				prev.left = node;
-				recolorAdd(prev.left);
-			} else
-				throw new AssertionError("rbAdd: Logically unreachable.");
-		}
+		recolorAdd(node);
 
-		size++;
+		size += node.count;
 		return true;
 	}
 
 	/**
-	 * Typical binary search tree remove using a node.
+	 * Typical binary search tree remove using a node. A node with two children
+	 * is replaced by its successor node rather than by its successor's data.
 	 * 
 	 * @param node
 	 *            marked node for removal
@@ -467,92 +819,46 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		if (node == null)
 			return false;
 
-		Node<E> current = node;
-
-		if (current.left == null && current.right != null) {
-			// Right child
-			current.right.parent = current.parent;
-			current = current.right;
-			current.isBlack = true;
-			size--;
-			return true;
-
-		} else if (current.left != null && current.right == null) {
-			// Left child
-			current.left.parent = current.parent;
-			current = current.left;
-			current.isBlack = true;
-			size--;
-			return true;
-
-		} else if ((current.left != null || current.right == null)
-				&& (current.left == null || current.right != null)) {
-			// XOR logic
-			// No children and both children
-
-			Node<E> floor = floor(current);
-			Node<E> ceiling = ceiling(current);
-
-			// Find which node is closer to current
-			Node<E> currentCandidate = floor == null && ceiling == null ? current
-					: floor == null && ceiling != null ? ceiling
-							: floor != null && ceiling == null ? floor
-									: compare(comparator(), floor.data,
-											current.data) < compare(
-											comparator(), current.data,
-											ceiling.data) ? floor : ceiling;
-
-			// Replace current node with candidate
-			if (currentCandidate == current) {
-				// Current has no children
-				if (current.parent != null) {
-					if (current == current.parent.left) {
-						current.parent.left = null;
-						recolorRemove(current, current.parent, true);
-					} else if (current == current.parent.right) {
-						current.parent.right = null;
-						recolorRemove(current, current.parent, false);
-					}
-				}
-
-				// Clip leaf
-				current = null;
-				size--;
-				return true;
-
-			} else if (currentCandidate == floor) {
-				// Lesser node is closer
-				current.data = floor.data;
-
-				// Found more children?
-				if (floor.left != null)
-					floor.left.parent = floor.parent;
-
-				// Link over floor
-				floor.parent.right = floor.left;
-				recolorRemove(floor, floor.parent, false);
-				floor = null;
-				size--;
-				return true;
-
-			} else if (currentCandidate == ceiling) {
-				// Greater node is closer
-				current.data = ceiling.data;
-
-				// Found more children?
-				if (ceiling.right != null)
-					ceiling.right.parent = ceiling.parent;
-
-				// Link over ceiling
-				ceiling.parent.left = ceiling.right;
-				recolorRemove(ceiling, ceiling.parent, true);
-				ceiling = null;
-				size--;
-				return true;
-
+		Node<E> child, parent;
+		boolean removedBlack = node.isBlack;
+		if (node.left == null) {
+			child = node.right;
+			parent = node.parent;
+			transplant(node, node.right);
+		} else if (node.right == null) {
+			child = node.left;
+			parent = node.parent;
+			transplant(node, node.left);
+		} else {
+			// Replace node with its successor
+			Node<E> successor = node.right;
+			while (successor.left != null)
+				successor = successor.left;
+			removedBlack = successor.isBlack;
+			child = successor.right;
+			if (successor.parent == node)
+				parent = successor;
+			else {
+				parent = successor.parent;
+				transplant(successor, successor.right);
+				successor.right = node.right;
+				successor.right.parent = successor;
 			}
+			transplant(node, successor);
+			successor.left = node.left;
+			successor.left.parent = successor;
+			successor.isBlack = node.isBlack;
 		}
-		return false;
+
+		// Every subtree above the unlinked position lost node's elements
+		for (Node<E> current = parent; current != null; current = current.parent)
+			updateSize(current);
+
+		if (removedBlack)
+			recolorRemove(child, parent);
+		node.left = node.parent = node.right = null;
+		size -= node.count;
+		return true;
 	}
 
 	/**
@@ -563,38 +869,46 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	 *            added node
 	 */
 	private void recolorAdd(Node<E> child) {
-		while (child != root || !child.isBlack) {
-			if (child.parent != null && child.parent.parent != null) {
-				if (child.parent == child.parent.parent.left) {
-					// Parent is left child
-					if (!redUncle(child, child.parent.parent.right)) {
-						if (child == child.parent.right) {
-							child = child.parent;
-							rotateLeft(child);
-						}
-
-						// child is left left grandchild
-						child.parent.isBlack = true;
-						child.parent.parent.isBlack = false;
-						rotateRight(child.parent.parent);
+		while (child.parent != null && !child.parent.isBlack) {
+			Node<E> grandparent = child.parent.parent;
+			if (child.parent == grandparent.left) {
+				// Parent is left child
+				Node<E> uncle = grandparent.right;
+				if (!isBlack(uncle)) {
+					child.parent.isBlack = true;
+					uncle.isBlack = true;
+					grandparent.isBlack = false;
+					child = grandparent;
+				} else {
+					if (child == child.parent.right) {
+						child = child.parent;
+						rotateLeft(child);
 					}
 
-				} else if (child.parent == child.parent.parent.right) {
-					// Parent is right child
-					if (!redUncle(child, child.parent.parent.left)) {
-						if (child == child.parent.left) {
-							child = child.parent;
-							rotateRight(child);
-						}
-
-						// child is right right grandchild
-						child.parent.isBlack = true;
-						child.parent.parent.isBlack = false;
-						rotateLeft(child.parent.parent);
+					// child is left left grandchild
+					child.parent.isBlack = true;
+					child.parent.parent.isBlack = false;
+					rotateRight(child.parent.parent);
+				}
+			} else {
+				// Parent is right child
+				Node<E> uncle = grandparent.left;
+				if (!isBlack(uncle)) {
+					child.parent.isBlack = true;
+					uncle.isBlack = true;
+					grandparent.isBlack = false;
+					child = grandparent;
+				} else {
+					if (child == child.parent.left) {
+						child = child.parent;
+						rotateRight(child);
 					}
 
+					// child is right right grandchild
+					child.parent.isBlack = true;
+					child.parent.parent.isBlack = false;
+					rotateLeft(child.parent.parent);
 				}
-
 			}
 		}
 		root.isBlack = true;
@@ -605,85 +919,110 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 	 * Intended to be called after rbRemove.
 	 * 
 	 * @param child
-	 *            removed node
+	 *            node which took place of removed node, possibly null
 	 * @param parent
-	 *            removed node parent
-	 * @return true if operation was run, false otherwise
-	 */
-	private boolean recolorRemove(Node<E> child, Node<E> parent, boolean wasLeft) {
-		if (child == null || child.isBlack)
-			while (child != root) {
-				if (parent != null) {
-					if (wasLeft) {
-						// child is left child
-						if (redSibling(parent.right))
-							rotateLeft(parent);
-
-						// child and sibling are black
-						if (!blackSiblingBlackChildren(parent.right)) {
-							// sibling has red children
-							blackRightSibling(parent.right);
-						}
-					} else {
-						// child is right child
-						if (redSibling(parent.left))
-							rotateRight(parent);
-
-						// child and sibling are black
-						if (!blackSiblingBlackChildren(parent.left)) {
-							// sibling has red children
-							blackLeftSibling(parent.left);
-						}
+	 *            parent of child
+	 */
+	private void recolorRemove(Node<E> child, Node<E> parent) {
+		while (child != root && isBlack(child)) {
+			if (child == parent.left) {
+				// child is left child
+				Node<E> sibling = parent.right;
+				if (!sibling.isBlack) {
+					sibling.isBlack = true;
+					parent.isBlack = false;
+					rotateLeft(parent);
+					sibling = parent.right;
+				}
+
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					// Two black children
+					sibling.isBlack = false;
+					child = parent;
+					parent = child.parent;
+				} else {
+					if (isBlack(sibling.right)) {
+						sibling.left.isBlack = true;
+						sibling.isBlack = false;
+						rotateRight(sibling);
+						sibling = parent.right;
 					}
+					sibling.isBlack = parent.isBlack;
+					parent.isBlack = true;
+					sibling.right.isBlack = true;
+					rotateLeft(parent);
+					child = root;
+				}
+			} else {
+				// child is right child
+				Node<E> sibling = parent.left;
+				if (!sibling.isBlack) {
+					sibling.isBlack = true;
+					parent.isBlack = false;
+					rotateRight(parent);
+					sibling = parent.left;
+				}
+
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					// Two black children
+					sibling.isBlack = false;
+					child = parent;
+					parent = child.parent;
+				} else {
+					if (isBlack(sibling.left)) {
+						sibling.right.isBlack = true;
+						sibling.isBlack = false;
+						rotateLeft(sibling);
+						sibling = parent.left;
+					}
+					sibling.isBlack = parent.isBlack;
+					parent.isBlack = true;
+					sibling.left.isBlack = true;
+					rotateRight(parent);
+					child = root;
 				}
-				return true;
 			}
-		return false;
+		}
+		if (child != null)
+			child.isBlack = true;
 	}
 
-	/**
-	 * Colors child's parent in red, and colors sibling in black.
-	 * 
-	 * @param sibling
-	 *            sibling of removed node
-	 * @return true if operation run, false otherwise
-	 */
-	private boolean redSibling(Node<E> sibling) {
-		if (sibling != null && !sibling.isBlack) {
-			sibling.parent.isBlack = false;
-			sibling.isBlack = true;
-			return true;
-		}
-		return false;
+	@Override
+	public boolean remove(Object obj) {
+		return remove(getNode(obj), 1);
 	}
 
 	/**
-	 * Colors child's parent and uncle in black, and colors child's grandparent
-	 * in red. Recursively recolors grandparent.
-	 * 
-	 * PRECONDITION: if uncle is red, child is not null
-	 * 
-	 * @param child
-	 *            newly added node
-	 * @param uncle
-	 *            uncle of newly added node
-	 * @return true if operation run, false otherwise
-	 */
-	private boolean redUncle(Node<E> child, Node<E> uncle) {
-		if ((uncle != null && !uncle.isBlack)
-				|| (child.parent.isBlack && (uncle == null || uncle.isBlack))) {
-			child.parent.isBlack = true;
-			child.parent.parent.isBlack = false;
-			uncle.isBlack = true;
-			recolorAdd(child.parent.parent);
-			return true;
-		}
-		return false;
+	 * This implementation descends once from root in compressed mode, taking
+	 * O(log n) time. Uncompressed, it unlinks one node per occurrence in
+	 * O(occurrences * log n) time.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		if (!compressed)
+			return super.remove(obj, occurrences);
+		checkOccurrences(occurrences);
+		return occurrences > 0 && remove(getNode(obj), occurrences);
 	}
 
-	@Override
-	public boolean remove(Object obj) {
-		return rbRemove(getNode(obj));
+	/**
+	 * Removes occurrences counted by a node, unlinking it once none remain.
+	 * 
+	 * @param node
+	 *            node holding occurrences, possibly null
+	 * @param occurrences
+	 *            positive number of occurrences to remove
+	 * @return true if operation changed collection, false otherwise
+	 */
+	private boolean remove(Node<E> node, int occurrences) {
+		if (node == null || node.count <= occurrences)
+			return rbRemove(node);
+
+		node.count -= occurrences;
+		for (Node<E> current = node; current != null; current = current.parent)
+			current.size -= occurrences;
+		size -= occurrences;
+		return true;
 	}
 
 	/**
@@ -698,19 +1037,14 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 
 		if (temp.left != null)
 			temp.left.parent = vertex;
-		temp.parent = vertex.parent;
-
-		if (vertex.parent == null)
-			root = temp;
-		else if (vertex == vertex.parent.left)
-			vertex.parent.left = temp;
-		else if (vertex == vertex.parent.right)
-			vertex.parent.right = temp;
-		else
-			throw new AssertionError("rotateLeft: Logically unreachable.");
+		transplant(vertex, temp);
 
 		temp.left = vertex;
 		vertex.parent = temp;
+
+		// temp now roots the subtree vertex used to
+		temp.size = vertex.size;
+		updateSize(vertex);
 	}
 
 	/**
@@ -725,19 +1059,14 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 
 		if (temp.right != null)
 			temp.right.parent = vertex;
-		temp.parent = vertex.parent;
-
-		if (vertex.parent == null)
-			root = temp;
-		else if (vertex == vertex.parent.left)
-			vertex.parent.left = temp;
-		else if (vertex == vertex.parent.right)
-			vertex.parent.right = temp;
-		else
-			throw new AssertionError("rotateRight: Logically unreachable.");
+		transplant(vertex, temp);
 
 		temp.right = vertex;
 		vertex.parent = temp;
+
+		// temp now roots the subtree vertex used to
+		temp.size = vertex.size;
+		updateSize(vertex);
 	}
 
 	/**
@@ -751,19 +1080,17 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		if (index < 0 || index >= size())
 			throw new IndexOutOfBoundsException(
 					"Index must point inclusively between 0 and one less than size.");
-		Node<E> result = select(root, index);
-		return result != null ? result.data : null;
-	}
-
-	private Node<E> select(Node<E> node, int index) {
-		int k = subtreeSize(node.left) + 1;
-		if (index == k)
-			return node;
-		else if (index < k)
-			return select(node.left, index);
-		else if (index > k)
-			return select(node.right, index);
-		return null;
+		Node<E> current = root;
+		while (true) {
+			int k = subtreeSize(current.left);
+			if (index < k)
+				current = current.left;
+			else if (index >= k + current.count) {
+				index -= k + current.count;
+				current = current.right;
+			} else
+				return current.data;
+		}
 	}
 
 	@Override
@@ -771,10 +1098,72 @@ public class TreeMultiset<E extends Comparable<? super E>> extends
 		return size;
 	}
 
-	private int subtreeSize(Node<E> node) {
-		if (node == null)
-			return 0;
-		return subtreeSize(node.left) + subtreeSize(node.right) + 1;
+	@Override
+	public Spliterator<E> spliterator() {
+		return new TreeSpliterator(0, -1);
+	}
+
+	/**
+	 * Returns number of elements in subtree.
+	 * 
+	 * @param node
+	 *            root of subtree, possibly null
+	 * @return number of elements in subtree
+	 */
+	private static int subtreeSize(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Returns node following a given node in order.
+	 * 
+	 * @param node
+	 *            node in tree
+	 * @return next node, null if node is last
+	 */
+	private static <E> Node<E> successor(Node<E> node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null)
+				node = node.left;
+			return node;
+		}
+		Node<E> parent = node.parent;
+		while (parent != null && node == parent.right) {
+			node = parent;
+			parent = parent.parent;
+		}
+		return parent;
+	}
+
+	/**
+	 * Replaces target with replacement in the eyes of target's parent.
+	 * 
+	 * @param target
+	 *            node being replaced
+	 * @param replacement
+	 *            node taking target's place, possibly null
+	 */
+	private void transplant(Node<E> target, Node<E> replacement) {
+		if (target.parent == null)
+			root = replacement;
+		else if (target == target.parent.left)
+			target.parent.left = replacement;
+		else
+			target.parent.right = replacement;
+		if (replacement != null)
+			replacement.parent = target.parent;
+	}
+
+	/**
+	 * Recomputes size of a node from its children.
+	 * 
+	 * @param node
+	 *            node whose children have correct sizes
+	 */
+	private static void updateSize(Node<?> node) {
+		node.size = subtreeSize(node.left) + subtreeSize(node.right)
+				+ node.count;
 	}
 
 }
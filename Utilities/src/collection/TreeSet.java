@@ -1,6 +1,7 @@
 package collection;
 
 import java.util.Comparator;
+import java.util.Iterator;
 
 /**
  * Ordered set backed by a red-black tree. Add method is refined to not accept
@@ -36,4 +37,44 @@ public class TreeSet<E extends Comparable<? super E>> extends TreeMultiset<E>
 		return !contains(obj) ? super.add(obj) : false;
 	}
 
+	/**
+	 * This implementation drops elements already present.
+	 */
+	@Override
+	public boolean addAllSorted(Iterator<? extends E> elements) {
+		return bulkLoad(elements, true);
+	}
+
+	/**
+	 * This implementation adds at most one occurrence.
+	 */
+	@Override
+	public boolean add(E obj, int occurrences) {
+		return Collections.addToSet(this, obj, occurrences);
+	}
+
+	@Override
+	public int count(Object obj) {
+		return contains(obj) ? 1 : 0;
+	}
+
+	/**
+	 * This implementation removes the only occurrence.
+	 */
+	@Override
+	public boolean remove(Object obj, int occurrences) {
+		return Collections.removeFromSet(this, obj, occurrences);
+	}
+
+	/**
+	 * This implementation accepts only counts of zero and one.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if count is greater than one
+	 */
+	@Override
+	public int setCount(E obj, int count) {
+		return Collections.setCountInSet(this, obj, count);
+	}
+
 }
@@ -0,0 +1,81 @@
+package collection;
+
+import java.util.Random;
+
+/**
+ * Hash strategy based on universal hashing. A hash code is decomposed into
+ * digits whose base is the table length, and the index is the dot product of
+ * those digits with random coefficients modulo the table length.
+ * 
+ * Coefficients are computed once per table length and reused. The two most
+ * recent table lengths are cached, so a table being migrated into a larger one
+ * does not recompute coefficients. The same table length always produces the
+ * same coefficients.
+ * 
+ * @author Jacob Malter
+ *
+ */
+public class UniversalHashStrategy implements HashStrategy {
+
+	/**
+	 * Random coefficients for one table length.
+	 * 
+	 * @author Jacob Malter
+	 *
+	 */
+	private static class Coefficients {
+
+		/** Table length for which coefficients were generated */
+		private final int length;
+		/** One coefficient per digit */
+		private final int[] values;
+
+		/**
+		 * Generates coefficients for a given table length.
+		 * 
+		 * @param length
+		 *            number of positions in the table
+		 */
+		private Coefficients(int length) {
+			this.length = length;
+			this.values = new int[MAX_DIGITS];
+			Random random = new Random(length);
+			for (int i = 0; i < values.length; i++)
+				values[i] = random.nextInt(length);
+		}
+
+	}
+
+	/** Most digits a non-negative int has in any base greater than one */
+	private static final int MAX_DIGITS = 31;
+
+	/** Coefficients for most recently used table length */
+	private Coefficients cache;
+	/** Coefficients for table length used before cache */
+	private Coefficients previous;
+
+	@Override
+	public int index(int hash, int length) {
+		if (length < 2)
+			return 0;
+		Coefficients coefficients = cache;
+		if (coefficients == null || coefficients.length != length) {
+			coefficients = previous;
+			if (coefficients == null || coefficients.length != length)
+				coefficients = new Coefficients(length);
+			previous = cache;
+			cache = coefficients;
+		}
+
+		// Same digits as Arrays.decompse without the intermediate stack
+		int value = hash & Integer.MAX_VALUE;
+		long result = 0;
+		for (int i = 0; value > 0; i++) {
+			result = (result + (long) coefficients.values[i] * (value % length))
+					% length;
+			value /= length;
+		}
+		return (int) result;
+	}
+
+}